@@ -0,0 +1,23 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+import org.bukkit.scheduler.BukkitScheduler;
+
+public final class Bukkit {
+    private static Server server;
+
+    private Bukkit() {}
+
+    public static Server getServer() {
+        return server;
+    }
+
+    public static void setServer(Server server) {
+        if (Bukkit.server != null) throw new UnsupportedOperationException("Cannot redefine singleton Server");
+        Bukkit.server = server;
+    }
+
+    public static BukkitScheduler getScheduler() {
+        return server.getScheduler();
+    }
+}
@@ -0,0 +1,14 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+import org.bukkit.block.Block;
+
+public interface Chunk {
+    int getX();
+
+    int getZ();
+
+    World getWorld();
+
+    Block getBlock(int x, int y, int z);
+}
@@ -0,0 +1,97 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+public class Location implements Cloneable {
+    private World world;
+    private double x;
+    private double y;
+    private double z;
+    private float pitch;
+    private float yaw;
+
+    public Location(final World world, final double x, final double y, final double z) {
+        this(world, x, y, z, 0, 0);
+    }
+
+    public Location(final World world, final double x, final double y, final double z, final float yaw, final float pitch) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.pitch = pitch;
+        this.yaw = yaw;
+    }
+
+    public void setWorld(World world) {
+        this.world = world;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public void setX(double x) {
+        this.x = x;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public int getBlockX() {
+        return locToBlock(x);
+    }
+
+    public void setY(double y) {
+        this.y = y;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public int getBlockY() {
+        return locToBlock(y);
+    }
+
+    public void setZ(double z) {
+        this.z = z;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public int getBlockZ() {
+        return locToBlock(z);
+    }
+
+    public void setYaw(float yaw) {
+        this.yaw = yaw;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public void setPitch(float pitch) {
+        this.pitch = pitch;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+
+    public static int locToBlock(double loc) {
+        return (int) Math.floor(loc);
+    }
+
+    @Override
+    public Location clone() {
+        try {
+            return (Location) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new Error(e);
+        }
+    }
+}
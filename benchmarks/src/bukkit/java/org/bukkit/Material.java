@@ -0,0 +1,23 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+public enum Material {
+    AIR(0),
+    STONE(1),
+    WATER(8),
+    STATIONARY_WATER(9),
+    LAVA(10),
+    STATIONARY_LAVA(11),
+    FIRE(51),
+    CACTUS(81);
+
+    private final int id;
+
+    private Material(final int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,26 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+import java.util.List;
+import java.util.logging.Logger;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+public interface Server {
+    String getName();
+
+    Player[] getOnlinePlayers();
+
+    PluginManager getPluginManager();
+
+    BukkitScheduler getScheduler();
+
+    List<World> getWorlds();
+
+    World getWorld(String name);
+
+    void savePlayers();
+
+    Logger getLogger();
+}
@@ -0,0 +1,62 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit;
+
+import java.util.List;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.ChunkGenerator;
+
+public interface World {
+    Block getBlockAt(int x, int y, int z);
+
+    int getBlockTypeIdAt(int x, int y, int z);
+
+    int getHighestBlockYAt(int x, int z);
+
+    Chunk getChunkAt(int x, int z);
+
+    Chunk getChunkAt(Block block);
+
+    boolean isChunkLoaded(Chunk chunk);
+
+    Chunk[] getLoadedChunks();
+
+    void loadChunk(int x, int z);
+
+    boolean isChunkLoaded(int x, int z);
+
+    boolean loadChunk(int x, int z, boolean generate);
+
+    boolean unloadChunk(int x, int z);
+
+    boolean unloadChunk(int x, int z, boolean save);
+
+    boolean unloadChunk(int x, int z, boolean save, boolean safe);
+
+    boolean unloadChunkRequest(int x, int z);
+
+    List<Player> getPlayers();
+
+    String getName();
+
+    long getId();
+
+    Location getSpawnLocation();
+
+    Environment getEnvironment();
+
+    long getSeed();
+
+    void save();
+
+    ChunkGenerator getGenerator();
+
+    List<BlockPopulator> getPopulators();
+
+    enum Environment {
+        NORMAL,
+        NETHER,
+        SKYLANDS
+    }
+}
@@ -0,0 +1,24 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.block;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+public interface Block {
+    Material getType();
+
+    int getTypeId();
+
+    World getWorld();
+
+    int getX();
+
+    int getY();
+
+    int getZ();
+
+    Chunk getChunk();
+
+    boolean setTypeId(int type);
+}
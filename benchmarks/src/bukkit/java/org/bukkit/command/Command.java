@@ -0,0 +1,14 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.command;
+
+public abstract class Command {
+    private final String name;
+
+    protected Command(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,8 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.command;
+
+public interface CommandSender {
+    void sendMessage(String message);
+
+    boolean isOp();
+}
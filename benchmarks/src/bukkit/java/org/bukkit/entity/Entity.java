@@ -0,0 +1,23 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.entity;
+
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+
+public interface Entity {
+    Location getLocation();
+
+    Vector getVelocity();
+
+    World getWorld();
+
+    boolean teleport(Location location);
+
+    int getEntityId();
+
+    boolean isDead();
+
+    UUID getUniqueId();
+}
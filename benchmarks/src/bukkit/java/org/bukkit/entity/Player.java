@@ -0,0 +1,10 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.entity;
+
+import org.bukkit.command.CommandSender;
+
+public interface Player extends Entity, CommandSender {
+    String getName();
+
+    boolean isOnline();
+}
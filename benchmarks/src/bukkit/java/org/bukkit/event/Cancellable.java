@@ -0,0 +1,8 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event;
+
+public interface Cancellable {
+    boolean isCancelled();
+
+    void setCancelled(boolean cancel);
+}
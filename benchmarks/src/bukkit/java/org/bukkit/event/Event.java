@@ -0,0 +1,34 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event;
+
+public abstract class Event {
+    private final Type type;
+
+    protected Event(final Type type) {
+        this.type = type;
+    }
+
+    public final Type getType() {
+        return type;
+    }
+
+    public enum Priority {
+        Lowest,
+        Low,
+        Normal,
+        High,
+        Highest,
+        Monitor
+    }
+
+    public enum Type {
+        PLAYER_JOIN,
+        PLAYER_QUIT,
+        PLAYER_MOVE,
+        PLAYER_TELEPORT,
+        BLOCK_BREAK,
+        BLOCK_PLACE,
+        CHUNK_LOAD,
+        CHUNK_UNLOAD
+    }
+}
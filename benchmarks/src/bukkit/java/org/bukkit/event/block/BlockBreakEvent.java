@@ -0,0 +1,29 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.block;
+
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+
+public class BlockBreakEvent extends BlockEvent implements Cancellable {
+    private Player player;
+    private boolean cancel;
+
+    public BlockBreakEvent(final Block theBlock, Player player) {
+        super(Type.BLOCK_BREAK, theBlock);
+        this.player = player;
+        this.cancel = false;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public boolean isCancelled() {
+        return cancel;
+    }
+
+    public void setCancelled(boolean cancel) {
+        this.cancel = cancel;
+    }
+}
@@ -0,0 +1,18 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.block;
+
+import org.bukkit.block.Block;
+import org.bukkit.event.Event;
+
+public class BlockEvent extends Event {
+    protected Block block;
+
+    public BlockEvent(final Event.Type type, final Block theBlock) {
+        super(type);
+        block = theBlock;
+    }
+
+    public final Block getBlock() {
+        return block;
+    }
+}
@@ -0,0 +1,12 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.block;
+
+import org.bukkit.event.Listener;
+
+public class BlockListener implements Listener {
+    public BlockListener() {}
+
+    public void onBlockPlace(BlockPlaceEvent event) {}
+
+    public void onBlockBreak(BlockBreakEvent event) {}
+}
@@ -0,0 +1,29 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.block;
+
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+
+public class BlockPlaceEvent extends BlockEvent implements Cancellable {
+    protected boolean cancel;
+    protected Player player;
+
+    public BlockPlaceEvent(Type type, Block placedBlock, Player thePlayer) {
+        super(type, placedBlock);
+        this.player = thePlayer;
+        cancel = false;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public boolean isCancelled() {
+        return cancel;
+    }
+
+    public void setCancelled(boolean cancel) {
+        this.cancel = cancel;
+    }
+}
@@ -0,0 +1,18 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.player;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+
+public class PlayerEvent extends Event {
+    protected Player player;
+
+    public PlayerEvent(final Event.Type type, final Player who) {
+        super(type);
+        player = who;
+    }
+
+    public final Player getPlayer() {
+        return player;
+    }
+}
@@ -0,0 +1,12 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.player;
+
+import org.bukkit.event.Listener;
+
+public class PlayerListener implements Listener {
+    public PlayerListener() {}
+
+    public void onPlayerQuit(PlayerQuitEvent event) {}
+
+    public void onPlayerMove(PlayerMoveEvent event) {}
+}
@@ -0,0 +1,42 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.player;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+
+public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
+    private boolean cancel = false;
+    private Location from;
+    private Location to;
+
+    public PlayerMoveEvent(final Player player, final Location from, final Location to) {
+        super(Type.PLAYER_MOVE, player);
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean isCancelled() {
+        return cancel;
+    }
+
+    public void setCancelled(boolean cancel) {
+        this.cancel = cancel;
+    }
+
+    public Location getFrom() {
+        return from;
+    }
+
+    public void setFrom(Location from) {
+        this.from = from;
+    }
+
+    public Location getTo() {
+        return to;
+    }
+
+    public void setTo(Location to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,21 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.event.player;
+
+import org.bukkit.entity.Player;
+
+public class PlayerQuitEvent extends PlayerEvent {
+    private String quitMessage;
+
+    public PlayerQuitEvent(Player who, String quitMessage) {
+        super(Type.PLAYER_QUIT, who);
+        this.quitMessage = quitMessage;
+    }
+
+    public String getQuitMessage() {
+        return quitMessage;
+    }
+
+    public void setQuitMessage(String quitMessage) {
+        this.quitMessage = quitMessage;
+    }
+}
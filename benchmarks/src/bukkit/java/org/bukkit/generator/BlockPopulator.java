@@ -0,0 +1,10 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.generator;
+
+import java.util.Random;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+public abstract class BlockPopulator {
+    public abstract void populate(World world, Random random, Chunk source);
+}
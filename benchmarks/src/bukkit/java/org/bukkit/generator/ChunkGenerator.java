@@ -0,0 +1,24 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+public abstract class ChunkGenerator {
+    public abstract byte[] generate(World world, Random random, int x, int z);
+
+    public boolean canSpawn(World world, int x, int z) {
+        return false;
+    }
+
+    public List<BlockPopulator> getDefaultPopulators(World world) {
+        return new ArrayList<BlockPopulator>();
+    }
+
+    public Location getFixedSpawnLocation(World world, Random random) {
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.plugin;
+
+import java.io.File;
+import org.bukkit.Server;
+
+public interface Plugin {
+    File getDataFolder();
+
+    Server getServer();
+
+    boolean isEnabled();
+
+    void onDisable();
+
+    void onLoad();
+
+    void onEnable();
+}
@@ -0,0 +1,9 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.plugin;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+
+public interface PluginManager {
+    void registerEvent(Event.Type type, Listener listener, Event.Priority priority, Plugin plugin);
+}
@@ -0,0 +1,35 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.plugin.java;
+
+import java.io.File;
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+
+public abstract class JavaPlugin implements Plugin {
+    private boolean isEnabled = false;
+    private Server server = null;
+    private File dataFolder = null;
+
+    public JavaPlugin() {
+    }
+
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    public final Server getServer() {
+        return server;
+    }
+
+    public final boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public boolean onCommand(CommandSender sender, Command command, String commandLabel, String[] args) {
+        return false;
+    }
+
+    public void onLoad() {}
+}
@@ -0,0 +1,22 @@
+// Cópia reduzida da API do Bukkit Beta 1.7.3: só o que o plugin e os benchmarks usam.
+package org.bukkit.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+public interface BukkitScheduler {
+    int scheduleSyncDelayedTask(Plugin plugin, Runnable task, long delay);
+
+    int scheduleSyncDelayedTask(Plugin plugin, Runnable task);
+
+    int scheduleSyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period);
+
+    int scheduleAsyncDelayedTask(Plugin plugin, Runnable task, long delay);
+
+    int scheduleAsyncDelayedTask(Plugin plugin, Runnable task);
+
+    int scheduleAsyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period);
+
+    void cancelTask(int taskId);
+
+    void cancelTasks(Plugin plugin);
+}
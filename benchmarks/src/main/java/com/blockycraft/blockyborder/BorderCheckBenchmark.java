@@ -0,0 +1,121 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checagem de borda do PlayerMoveEvent e cálculo do destino do wrap.
+ *
+ * Os eventos são gerados antes, numa das distribuições de posição:
+ * {@code inside} (todos bem dentro), {@code ring} (todos na faixa perto da
+ * borda, onde o pré-carregamento acompanha), {@code crossing} (todos passando
+ * do limite) e {@code mixed}, a de um servidor normal: 95% dentro, 4,9% na
+ * faixa e 0,1% cruzando. O mundo é um proxy, então a chamada a getName() de
+ * cada evento inclui o custo do despacho do proxy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BorderCheckBenchmark {
+    private static final int EVENTS = 1 << 14; // potência de 2, para o índice circular
+    private static final int PLAYERS = 200;
+    private static final int EVENTS_PER_TICK = 256;
+    private static final double MIN_X = -5376, MAX_X = 5376, MIN_Z = -2688, MAX_Z = 2688, MARGIN = 48;
+    private static final double STEP = 0.28D; // andando, blocos por tick
+
+    @Param({"inside", "ring", "crossing", "mixed"})
+    public String distribution;
+
+    private BorderPlayerListener listener;
+    private WorldBorder border;
+    private TickMonitor ticks;
+    private PlayerMoveEvent[] events;
+    private Location[] outside;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        World world = Stubs.world("world");
+        BorderBounds bounds = new BorderBounds(true, true, MIN_X, MAX_X, MIN_Z, MAX_Z, 2.0D, MARGIN);
+        this.border = new WorldBorder("world", bounds, new File("target"), true);
+        this.border.prewarmer = new WrapPrewarmer(world, 60, 1, 2, 64, 200);
+        this.ticks = new TickMonitor();
+        this.listener = new BorderPlayerListener(new WorldBorder[] { this.border }, this.ticks,
+            new BorderPlayerListener.Teleporter() {
+                public void teleport(WorldBorder b, Player player, Location destination) {}
+            });
+
+        Random random = new Random(42);
+        Player[] players = new Player[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++)
+            players[i] = Stubs.player(world, 1000 + i);
+        this.events = new PlayerMoveEvent[EVENTS];
+        this.outside = new Location[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            Location to = position(world, random, pick(random));
+            double angle = random.nextDouble() * 2 * Math.PI;
+            Location from = new Location(world, to.getX() - Math.cos(angle) * STEP, 64, to.getZ() - Math.sin(angle) * STEP);
+            this.events[i] = new PlayerMoveEvent(players[i % PLAYERS], from, to);
+            this.outside[i] = position(world, random, "crossing");
+        }
+    }
+
+    private String pick(Random random) {
+        if (!this.distribution.equals("mixed")) return this.distribution;
+        double r = random.nextDouble();
+        return r < 0.95D ? "inside" : r < 0.999D ? "ring" : "crossing";
+    }
+
+    private static Location position(World world, Random random, String kind) {
+        if (kind.equals("inside")) {
+            double x = MIN_X + MARGIN + random.nextDouble() * (MAX_X - MIN_X - 2 * MARGIN);
+            double z = MIN_Z + MARGIN + random.nextDouble() * (MAX_Z - MIN_Z - 2 * MARGIN);
+            return new Location(world, x, 64, z);
+        }
+        // Perto de um dos quatro lados: dentro da faixa, ou até 1 bloco além do limite.
+        double depth = kind.equals("ring") ? random.nextDouble() * MARGIN : -random.nextDouble();
+        double x = MIN_X + random.nextDouble() * (MAX_X - MIN_X), z = MIN_Z + random.nextDouble() * (MAX_Z - MIN_Z);
+        switch (random.nextInt(4)) {
+            case 0: x = MIN_X + depth; break;
+            case 1: x = MAX_X - depth; break;
+            case 2: z = MIN_Z + depth; break;
+            default: z = MAX_Z - depth; break;
+        }
+        return new Location(world, x, 64, z);
+    }
+
+    @Benchmark
+    public void onPlayerMove() {
+        int i = this.next++ & (EVENTS - 1);
+        if (i % EVENTS_PER_TICK == 0) {
+            // O tempo passa: carências vencem e o pré-carregamento anda.
+            this.ticks.run();
+            this.border.prewarmer.tick(this.ticks.getTick());
+        }
+        this.listener.onPlayerMove(this.events[i]);
+    }
+
+    @Benchmark
+    public Location wrap() {
+        return this.border.bounds.wrap(this.outside[this.next++ & (EVENTS - 1)]);
+    }
+}
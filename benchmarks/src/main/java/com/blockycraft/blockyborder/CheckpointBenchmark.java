@@ -0,0 +1,56 @@
+package com.blockycraft.blockyborder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialização do estado do /fill: o retrato criado a cada tick na thread
+ * principal ({@code withProgress}) e a codificação/decodificação do
+ * {@link CheckpointWriter} (formato do {@link FillJobState} mais CRC32), sem o
+ * custo do disco.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckpointBenchmark {
+    private FillJobState state;
+    private ByteBuffer serialized;
+    private int position = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        this.state = new FillJobState("world", 5, 0, -336, 335, -168, 167, 672 * 336, 25.0D, 18.0D,
+            FillTraversal.Order.REGION, true, true, 123456, 120000);
+        this.serialized = CheckpointWriter.encode(this.state);
+    }
+
+    @Benchmark
+    public FillJobState withProgress() {
+        this.position++;
+        return this.state.withProgress(this.position, this.position);
+    }
+
+    @Benchmark
+    public ByteBuffer write() throws IOException {
+        return CheckpointWriter.encode(this.state);
+    }
+
+    @Benchmark
+    public FillJobState read() throws IOException {
+        return CheckpointWriter.decode(this.serialized.duplicate());
+    }
+}
@@ -0,0 +1,110 @@
+package com.blockycraft.blockyborder;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Carência pós-teleporte com muitos jogadores: custo de um tick em que cada
+ * jogador se move uma vez e 1% deles cruza a borda.
+ *
+ * {@code graceTable} é o caminho atual ({@link GraceTable}, "expira no tick
+ * N"). {@code legacySweep} reproduz o antigo borderIgnoreTick, um
+ * ConcurrentHashMap de UUID para ticks restantes varrido e decrementado a cada
+ * tick, para comparação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraceTableBenchmark {
+    private static final int IGNORE_TICKS = BorderPlayerListener.IGNORE_TICKS;
+    private static final int CROSSING_PERCENT = 1;
+
+    @Param({"100", "1000", "10000"})
+    public int players;
+
+    private UUID[] uuids;
+    private boolean[][] crossing; // por tick (circular) e por jogador
+    private final GraceTable grace = new GraceTable();
+    private final Map<UUID, Integer> legacy = new ConcurrentHashMap<>();
+    private long tick = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        this.uuids = new UUID[this.players];
+        for (int i = 0; i < this.players; i++)
+            this.uuids[i] = new UUID(random.nextLong(), random.nextLong());
+        this.crossing = new boolean[64][this.players];
+        for (boolean[] row : this.crossing)
+            for (int i = 0; i < this.players; i++)
+                row[i] = random.nextInt(100) < CROSSING_PERCENT;
+    }
+
+    @Benchmark
+    public void graceTable(Blackhole bh) {
+        long now = ++this.tick;
+        boolean[] crosses = this.crossing[(int)(now & 63)];
+        for (int i = 0; i < this.players; i++) {
+            UUID id = this.uuids[i];
+            if (!crosses[i]) continue;
+            if (this.grace.expiresAt(id) > now) {
+                bh.consume(i);
+                continue;
+            }
+            this.grace.put(id, now + IGNORE_TICKS);
+        }
+    }
+
+    @Benchmark
+    public void legacySweep(Blackhole bh) {
+        long now = ++this.tick;
+        boolean[] crosses = this.crossing[(int)(now & 63)];
+        for (int i = 0; i < this.players; i++) {
+            UUID id = this.uuids[i];
+            if (!crosses[i]) continue;
+            if (this.legacy.containsKey(id)) {
+                bh.consume(i);
+                continue;
+            }
+            this.legacy.put(id, Integer.valueOf(IGNORE_TICKS));
+        }
+        Iterator<Map.Entry<UUID, Integer>> it = this.legacy.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Integer> entry = it.next();
+            int ticks = entry.getValue().intValue() - 1;
+            if (ticks <= 0) {
+                it.remove();
+                continue;
+            }
+            entry.setValue(Integer.valueOf(ticks));
+        }
+    }
+
+    /** Entrada e saída de jogadores: put + remove, como no PlayerQuit. */
+    @Benchmark
+    public void putRemove() {
+        long now = ++this.tick;
+        UUID id = this.uuids[(int)(now % this.players)];
+        this.grace.put(id, now + IGNORE_TICKS);
+        this.grace.remove(id);
+    }
+}
@@ -0,0 +1,369 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+/**
+ * Reproduz, sem servidor, a carga de um servidor cheio sobre o
+ * {@link BorderPlayerListener}, o pré-carregamento do wrap e o /fill, para
+ * ver como eles escalam antes de subir uma versão.
+ *
+ * Os movimentos vêm de um trace gravado por {@code /border record} (ver
+ * {@link MoveRecorder}) ou, sem {@code --trace}, de jogadores sintéticos que
+ * andam ao acaso numa borda pequena, cruzando-a com frequência. A cada tick
+ * simulado os movimentos daquele tick passam pelo listener, o
+ * pré-carregamento roda e o {@link FillScheduler} avança um /fill da borda
+ * inteira contra um mundo falso em que gerar um chunk custa
+ * {@code --chunk-ms} (espera ativa, na primeira vez que o chunk é pedido).
+ *
+ * Nenhum Server é necessário: o listener, o teleporte simulado e o /fill só
+ * falam com o World e os Player dos {@link Stubs}. O relatório traz a
+ * distribuição do custo por tick, os teleportes e os erros de wrap: saídas da
+ * borda fora da carência que não foram teleportadas, teleportes dentro da
+ * carência (duplicados), destinos fora da borda e teleportes de quem não
+ * saiu. Com algum erro de wrap o processo termina com código 1.
+ *
+ * Uso: {@code java -cp benchmarks.jar com.blockycraft.blockyborder.ReplayHarness [opções]};
+ * sem argumentos, 200 jogadores por 6000 ticks.
+ */
+public final class ReplayHarness {
+    private static final double NANOS_PER_MILLI = 1_000_000.0D;
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final double SPEED_CHANGE_CHANCE = 0.01D; // por tick
+    private static final double[] SPEEDS = { 0.0D, 0.22D, 0.28D, 0.6D }; // parado olhando em volta, andando, correndo, de barco
+    private static final double Y = 64.0D;
+    // Mesmos padrões do plugin.
+    private static final double PREWARM_DISTANCE = 48.0D;
+    private static final int PREWARM_LOOKAHEAD_TICKS = 60, PREWARM_RADIUS = 1, PREWARM_PER_TICK = 2, PREWARM_QUEUE = 64, PREWARM_RELEASE_TICKS = 200;
+    private static final int PRIORITY_RADIUS = 16, PRIORITY_WRAP_TICKS = 6000;
+    private static final int UNLOAD_BATCH = 32;
+
+    private static final class Walker {
+        Player player;
+        World world;
+        double x, y = Y, z, heading, speed;
+        long lastTeleport = Long.MIN_VALUE / 2;
+
+        Walker(World world) {
+            this.world = world;
+        }
+    }
+
+    private final String worldName;
+    private final double minX, maxX, minZ, maxZ;
+    private final int maxTicks;
+    private final long chunkNanos;
+    private final File dataFolder;
+
+    private final BlockyBorder plugin = new BlockyBorder();
+    private final Map<String, World> worlds = new HashMap<>();
+    private final Map<UUID, Walker> walkers = new HashMap<>();
+    private final Set<Long> generated = new HashSet<>();
+    private final World world;
+    private final Chunk chunk;
+    private final WorldBorder border;
+    private final BorderPlayerListener listener;
+    private final FillScheduler scheduler;
+    private final FillStepTask job;
+
+    private final LatencyHistogram tickCost = new LatencyHistogram(), listenerCost = new LatencyHistogram(), fillCost = new LatencyHistogram();
+    private long listenerNanos, moves, teleports, missed, duplicates, badDestinations, spurious, slowTicks;
+    private Location teleported; // destino do teleporte feito pelo último onPlayerMove
+
+    private ReplayHarness(Map<String, String> opts) throws IOException {
+        this.worldName = opt(opts, "world", "world");
+        String[] rect = opt(opts, "border", "-512,-512,512,512").split(",");
+        if (rect.length != 4) throw new IllegalArgumentException("--border precisa de x1,z1,x2,z2");
+        double x1 = Double.parseDouble(rect[0].trim()), z1 = Double.parseDouble(rect[1].trim());
+        double x2 = Double.parseDouble(rect[2].trim()), z2 = Double.parseDouble(rect[3].trim());
+        this.minX = Math.min(x1, x2);
+        this.maxX = Math.max(x1, x2);
+        this.minZ = Math.min(z1, z2);
+        this.maxZ = Math.max(z1, z2);
+        this.maxTicks = Integer.parseInt(opt(opts, "ticks", "6000"));
+        this.chunkNanos = (long)(Double.parseDouble(opt(opts, "chunk-ms", "2")) * NANOS_PER_MILLI);
+        this.dataFolder = Files.createTempDirectory("blockyborder-replay").toFile();
+
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getChunkAt", new Stubs.Answer() {
+            public Object answer(Object[] args) { return generate(args); }
+        });
+        answers.put("loadChunk", new Stubs.Answer() {
+            public Object answer(Object[] args) {
+                generate(args);
+                return Boolean.TRUE;
+            }
+        });
+        answers.put("getLoadedChunks", new Chunk[0]);
+        answers.put("getPopulators", Collections.emptyList());
+        answers.put("getPlayers", new Stubs.Answer() {
+            public Object answer(Object[] args) { return playersIn(ReplayHarness.this.world); }
+        });
+        this.world = Stubs.world(this.worldName, answers);
+        this.worlds.put(this.worldName, this.world);
+        this.chunk = Stubs.chunk(this.world, 0, 0);
+
+        BorderBounds bounds = new BorderBounds(true, true, this.minX, this.maxX, this.minZ, this.maxZ, 2.0D, PREWARM_DISTANCE);
+        this.border = new WorldBorder(this.worldName, bounds, this.dataFolder, true);
+        this.border.prewarmer = new WrapPrewarmer(this.world, PREWARM_LOOKAHEAD_TICKS, PREWARM_RADIUS, PREWARM_PER_TICK,
+            PREWARM_QUEUE, PREWARM_RELEASE_TICKS);
+        this.border.priority = new FillPriority(PRIORITY_RADIUS, PRIORITY_WRAP_TICKS);
+        this.listener = new BorderPlayerListener(new WorldBorder[] { this.border }, this.plugin.getTickMonitor(),
+            new BorderPlayerListener.Teleporter() {
+                public void teleport(WorldBorder target, Player player, Location destination) { simulateTeleport(target, destination); }
+            });
+
+        int cminX = (int)this.minX >> 4, cmaxX = (int)this.maxX >> 4, cminZ = (int)this.minZ >> 4, cmaxZ = (int)this.maxZ >> 4;
+        int total = (cmaxX - cminX + 1) * (cmaxZ - cminZ + 1);
+        FillJobState state = new FillJobState(this.worldName, Integer.parseInt(opt(opts, "fill-freq", "5")), 0, cminX, cmaxX, cminZ, cmaxZ, total,
+            Double.parseDouble(opt(opts, "fill-budget-ms", "0")), 0.0D,
+            FillTraversal.Order.parse(opt(opts, "fill-order", "region"), FillTraversal.Order.REGION), false, true, 0, 0);
+        this.job = new FillStepTask(this.plugin, this.border, this.world, state,
+            ChunkBitmap.open(this.border.bitmapFile, cminX, cmaxX, cminZ, cmaxZ));
+        this.border.fillJob = this.job;
+        this.border.filling = true;
+        // Marca alta acima de 100%: o heap do harness não deve pausar o /fill.
+        this.scheduler = new FillScheduler(this.plugin, new HeapWatermarks(2.0D, 2.0D), UNLOAD_BATCH);
+        this.scheduler.add(this.job);
+    }
+
+    private static String opt(Map<String, String> opts, String key, String def) {
+        String value = opts.get(key);
+        return value != null ? value : def;
+    }
+
+    /** getChunkAt/loadChunk do mundo falso: a primeira vez que um chunk é pedido custa a geração. */
+    private Chunk generate(Object[] args) {
+        if (args != null && args.length >= 2 && args[0] instanceof Integer) {
+            long key = ChunkUnloader.key((Integer)args[0], (Integer)args[1]);
+            if (this.generated.add(key)) {
+                long end = System.nanoTime() + this.chunkNanos;
+                while (System.nanoTime() < end) {}
+            }
+        }
+        return this.chunk;
+    }
+
+    private List<Player> playersIn(World world) {
+        List<Player> players = new ArrayList<>();
+        for (Walker w : this.walkers.values())
+            if (w.world == world) players.add(w.player);
+        return players;
+    }
+
+    /** O safeTeleport do plugin, menos o teleporte de verdade. */
+    private void simulateTeleport(WorldBorder border, Location destination) {
+        this.plugin.prepareTeleport(border, destination);
+        this.teleported = destination;
+    }
+
+    private World worldNamed(String name) {
+        World w = this.worlds.get(name);
+        if (w == null) {
+            w = Stubs.world(name); // sem borda: o listener só procura e sai
+            this.worlds.put(name, w);
+        }
+        return w;
+    }
+
+    /** O jogador do UUID; o trace o identifica assim, o id de entidade é só do stub. */
+    private Walker walker(UUID id, World world) {
+        Walker w = this.walkers.get(id);
+        if (w == null) {
+            final Walker created = new Walker(world);
+            Map<String, Object> answers = new HashMap<>();
+            answers.put("getLocation", new Stubs.Answer() {
+                public Object answer(Object[] args) { return new Location(created.world, created.x, created.y, created.z); }
+            });
+            answers.put("getUniqueId", id);
+            created.player = Stubs.player(world, 100 + this.walkers.size() * 7, answers);
+            this.walkers.put(id, created);
+            w = created;
+        }
+        return w;
+    }
+
+    private boolean outside(double x, double z) {
+        return x < this.minX || x > this.maxX || z < this.minZ || z > this.maxZ;
+    }
+
+    private void beginTick() {
+        this.plugin.getTickMonitor().run();
+        this.listenerNanos = 0;
+    }
+
+    private void move(Walker w, Location from, Location to) {
+        this.teleported = null;
+        long start = System.nanoTime();
+        this.listener.onPlayerMove(new PlayerMoveEvent(w.player, from, to));
+        this.listenerNanos += System.nanoTime() - start;
+        this.moves++;
+
+        long tick = this.plugin.getTickMonitor().getTick();
+        boolean out = to.getWorld() == this.world && outside(to.getX(), to.getZ());
+        boolean inGrace = tick < w.lastTeleport + BorderPlayerListener.IGNORE_TICKS;
+        Location destination = this.teleported;
+        if (destination == null) {
+            if (out && !inGrace) this.missed++;
+            w.world = to.getWorld();
+            w.x = to.getX();
+            w.y = to.getY();
+            w.z = to.getZ();
+            return;
+        }
+        this.teleports++;
+        if (inGrace) this.duplicates++;
+        if (!out) this.spurious++;
+        if (outside(destination.getX(), destination.getZ())) this.badDestinations++;
+        w.lastTeleport = tick;
+        w.world = destination.getWorld();
+        w.x = destination.getX();
+        w.y = destination.getY();
+        w.z = destination.getZ();
+    }
+
+    private void endTick() {
+        long start = System.nanoTime();
+        this.border.prewarmer.tick(this.plugin.getTickMonitor().getTick());
+        long prewarm = System.nanoTime() - start;
+        start = System.nanoTime();
+        this.scheduler.run();
+        long fill = System.nanoTime() - start;
+        long total = this.listenerNanos + prewarm + fill;
+        this.listenerCost.record(this.listenerNanos);
+        this.fillCost.record(fill);
+        this.tickCost.record(total);
+        if (total > TICK_NANOS) this.slowTicks++;
+    }
+
+    /** Jogadores sintéticos espalhados pela borda, andando em linha reta e mudando de rumo às vezes. */
+    private void runSynthetic(int players, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < players; i++) {
+            Walker w = walker(new UUID(0x4242L, 100 + i * 7), this.world);
+            w.x = this.minX + random.nextDouble() * (this.maxX - this.minX);
+            w.z = this.minZ + random.nextDouble() * (this.maxZ - this.minZ);
+            w.heading = random.nextDouble() * 2 * Math.PI;
+            w.speed = SPEEDS[random.nextInt(SPEEDS.length)];
+        }
+        List<Walker> all = new ArrayList<>(this.walkers.values());
+        for (int t = 0; t < this.maxTicks; t++) {
+            beginTick();
+            for (Walker w : all) {
+                if (random.nextDouble() < SPEED_CHANGE_CHANCE) {
+                    w.heading = random.nextDouble() * 2 * Math.PI;
+                    w.speed = SPEEDS[random.nextInt(SPEEDS.length)];
+                }
+                Location from = new Location(w.world, w.x, w.y, w.z);
+                Location to = new Location(w.world, w.x + Math.cos(w.heading) * w.speed, w.y, w.z + Math.sin(w.heading) * w.speed);
+                move(w, from, to);
+            }
+            endTick();
+        }
+    }
+
+    /**
+     * Repete um trace na ordem gravada. Os ticks são contados a partir do
+     * primeiro do trace, e os ticks sem movimento também rodam o /fill.
+     */
+    private void runTrace(File trace) throws IOException {
+        final long[] first = { Long.MIN_VALUE };
+        MoveRecorder.read(trace, new MoveRecorder.Visitor() {
+            public void move(long playerMost, long playerLeast, long tick, String worldName, double fx, double fy, double fz, double tx, double ty, double tz) {
+                if (first[0] == Long.MIN_VALUE) first[0] = tick;
+                long t = tick - first[0] + 1;
+                if (t > ReplayHarness.this.maxTicks) return;
+                while (ReplayHarness.this.plugin.getTickMonitor().getTick() < t) {
+                    if (ReplayHarness.this.plugin.getTickMonitor().getTick() > 0) endTick();
+                    beginTick();
+                }
+                World world = worldNamed(worldName);
+                Walker w = walker(new UUID(playerMost, playerLeast), world);
+                ReplayHarness.this.move(w, new Location(world, fx, fy, fz), new Location(world, tx, ty, tz));
+            }
+        });
+        if (this.plugin.getTickMonitor().getTick() > 0) endTick();
+    }
+
+    private void report() {
+        System.out.println(String.format("[ReplayHarness] %d ticks, %d jogadores, %d movimentos; borda %.0f,%.0f a %.0f,%.0f; %.2f ms por chunk gerado",
+            this.plugin.getTickMonitor().getTick(), this.walkers.size(), this.moves, this.minX, this.minZ, this.maxX, this.maxZ,
+            this.chunkNanos / NANOS_PER_MILLI));
+        System.out.println(distribution("tick (listener + pré-carregamento + /fill)", this.tickCost)
+            + String.format("; %d ticks acima de %d ms", this.slowTicks, TICK_NANOS / 1_000_000L));
+        System.out.println(distribution("listener por tick", this.listenerCost));
+        LatencyHistogram check = this.listener.getCheckCost();
+        System.out.println(String.format("listener por movimento (amostrado): p50 %d ns, p99 %d ns, máx %d ns",
+            check.percentile(0.50D), check.percentile(0.99D), check.max()));
+        System.out.println(distribution("/fill por tick", this.fillCost)
+            + String.format("; %d de %d chunks gerados, %d antes da ordem por estarem perto de alguém%s", this.job.getDone(),
+                this.job.getState().total, this.border.priority.getPromoted(), this.border.fillJob == null ? " (completo)" : ""));
+        System.out.println(String.format("teleportes: %d; wraps perdidos: %d; wraps duplicados: %d; destinos fora da borda: %d; teleportes sem sair da borda: %d",
+            this.teleports, this.missed, this.duplicates, this.badDestinations, this.spurious));
+    }
+
+    private static String distribution(String label, LatencyHistogram h) {
+        return String.format("%s: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, máx %.3f ms", label,
+            h.percentile(0.50D) / NANOS_PER_MILLI, h.percentile(0.95D) / NANOS_PER_MILLI,
+            h.percentile(0.99D) / NANOS_PER_MILLI, h.max() / NANOS_PER_MILLI);
+    }
+
+    private boolean hasWrapErrors() {
+        return this.missed > 0 || this.duplicates > 0 || this.badDestinations > 0 || this.spurious > 0;
+    }
+
+    private void cleanup() {
+        File[] files = this.dataFolder.listFiles();
+        if (files != null)
+            for (File f : files) f.delete();
+        this.dataFolder.delete();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) usage();
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        ReplayHarness harness;
+        try {
+            harness = new ReplayHarness(opts);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+        try {
+            if (opts.containsKey("trace"))
+                harness.runTrace(new File(opts.get("trace")));
+            else
+                harness.runSynthetic(Integer.parseInt(opt(opts, "players", "200")), Long.parseLong(opt(opts, "seed", "42")));
+            harness.report();
+        } finally {
+            harness.cleanup();
+        }
+        if (harness.hasWrapErrors()) System.exit(1);
+    }
+
+    private static void usage() {
+        System.err.println("uso: ReplayHarness [--trace <arquivo .trace> | --players 200 --seed 42] [--ticks 6000]");
+        System.err.println("                   [--world world] [--border x1,z1,x2,z2] [--chunk-ms 2]");
+        System.err.println("                   [--fill-freq 5] [--fill-budget-ms 0] [--fill-order region|column|spiral]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,93 @@
+package com.blockycraft.blockyborder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * Implementações mínimas de World, Chunk e Player para os benchmarks, sem
+ * servidor. São proxies: os métodos listados devolvem o valor dado (ou o
+ * calculado por um {@link Answer}) e todos os outros devolvem o valor padrão
+ * do tipo (0, false, null), então nenhum chunk é carregado ou gerado de
+ * verdade.
+ */
+final class Stubs {
+    private Stubs() {}
+
+    /** Resposta calculada a cada chamada, com os argumentos dela. */
+    interface Answer {
+        Object answer(Object[] args);
+    }
+
+    static World world(String name) {
+        return world(name, new HashMap<String, Object>());
+    }
+
+    /** Mundo com respostas extras (ou que substituem as padrão), por nome de método. */
+    static World world(String name, Map<String, Object> extra) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getName", name);
+        answers.put("getSeed", 42L);
+        answers.putAll(extra);
+        return stub(World.class, answers);
+    }
+
+    static Chunk chunk(World world, int x, int z) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getWorld", world);
+        answers.put("getX", x);
+        answers.put("getZ", z);
+        return stub(Chunk.class, answers);
+    }
+
+    static Player player(World world, int entityId) {
+        return player(world, entityId, new HashMap<String, Object>());
+    }
+
+    static Player player(World world, int entityId, Map<String, Object> extra) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getWorld", world);
+        answers.put("getEntityId", entityId);
+        answers.put("getUniqueId", new UUID(0x4242L, entityId));
+        answers.put("getName", "bench" + entityId);
+        answers.put("teleport", Boolean.TRUE);
+        answers.put("isOnline", Boolean.TRUE);
+        answers.putAll(extra);
+        return stub(Player.class, answers);
+    }
+
+    private static <T> T stub(final Class<T> type, final Map<String, Object> answers) {
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("equals")) return proxy == args[0];
+                if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                if (name.equals("toString")) return type.getSimpleName() + answers;
+                if (answers.containsKey(name)) {
+                    Object value = answers.get(name);
+                    return value instanceof Answer ? ((Answer)value).answer(args) : value;
+                }
+                return defaultValue(method.getReturnType());
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0D;
+        if (type == float.class) return 0.0F;
+        if (type == char.class) return (char)0;
+        if (type == byte.class) return (byte)0;
+        if (type == short.class) return (short)0;
+        return 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.blockycraft.blockyborder;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Avanço do cursor do /fill: custo por chunk de percorrer uma área de 64x64
+ * regiões em cada ordem de visita. É também o custo de retomar um trabalho,
+ * que refaz a sequência até a posição salva.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraversalBenchmark {
+    // Mais ou menos o tamanho da borda padrão (10752 x 5376 blocos).
+    private static final int MIN_X = -336, MAX_X = 335, MIN_Z = -168, MAX_Z = 167;
+    private static final int CHUNKS = (MAX_X - MIN_X + 1) * (MAX_Z - MIN_Z + 1);
+
+    // String e não FillTraversal.Order: o código gerado pelo JMH fica em outro
+    // pacote e não enxerga o enum, que é package-private.
+    @Param({"column", "region", "spiral"})
+    public String order;
+
+    private FillTraversal.Order parsed;
+
+    @Setup
+    public void setup() {
+        this.parsed = FillTraversal.Order.parse(this.order, null);
+        if (this.parsed == null) throw new IllegalArgumentException("ordem desconhecida: " + this.order);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public long fullTraversal() {
+        FillTraversal traversal = this.parsed.create(MIN_X, MAX_X, MIN_Z, MAX_Z);
+        long acc = 0;
+        while (traversal.hasNext())
+            acc ^= traversal.next();
+        return acc;
+    }
+}
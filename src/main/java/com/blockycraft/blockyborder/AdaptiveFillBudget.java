@@ -0,0 +1,61 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Orçamento de tempo por tick para o /fill.
+ *
+ * Em vez de gerar um número fixo de chunks por tick, mede o custo de cada
+ * chunk e só começa o próximo se ele ainda couber no orçamento do tick.
+ * Quando o TPS cai abaixo do piso, o orçamento é reduzido pela metade a cada
+ * tick (podendo pular ticks inteiros) e volta a crescer aos poucos depois que
+ * o servidor se recupera.
+ */
+class AdaptiveFillBudget {
+    static final int MAX_CHUNKS_PER_TICK = 256; // teto de segurança
+    private static final double COST_SMOOTHING = 0.2D;
+    private static final double MIN_SCALE = 0.125D; // abaixo disso o tick é pulado
+    private static final double RECOVERY_STEP = 0.05D;
+
+    private final long budgetNanos;
+    private final double minTps;
+    private double scale = 1.0D;
+    private double chunkNanos = 0.0D; // custo médio de um chunk (0 = ainda sem amostra)
+
+    AdaptiveFillBudget(double budgetMs, double minTps) {
+        this.budgetNanos = (long)(Math.max(0.0D, budgetMs) * 1_000_000L);
+        this.minTps = minTps;
+    }
+
+    public boolean isEnabled() { return this.budgetNanos > 0; }
+
+    /**
+     * Atualiza a escala com o TPS atual e devolve o orçamento deste tick em
+     * nanossegundos. Zero significa que o tick deve ser pulado.
+     */
+    public long beginTick(double tps) {
+        if (this.minTps > 0 && tps < this.minTps) {
+            this.scale = this.scale * 0.5D;
+            if (this.scale < MIN_SCALE) {
+                this.scale = MIN_SCALE;
+                return 0L;
+            }
+        } else {
+            this.scale = Math.min(1.0D, this.scale + RECOVERY_STEP);
+        }
+        return (long)(this.budgetNanos * this.scale);
+    }
+
+    /** Registra o tempo gasto em um chunk. */
+    public void record(long nanos) {
+        if (this.chunkNanos == 0.0D) this.chunkNanos = nanos;
+        else this.chunkNanos += (nanos - this.chunkNanos) * COST_SMOOTHING;
+    }
+
+    /** O próximo chunk (pelo custo médio) ainda cabe no que sobrou do tick? */
+    public boolean hasRoom(long elapsedNanos, long tickBudgetNanos) {
+        return elapsedNanos + (long)this.chunkNanos <= tickBudgetNanos;
+    }
+
+    public double getChunkMillis() { return this.chunkNanos / 1_000_000.0D; }
+
+    public double getScale() { return this.scale; }
+}
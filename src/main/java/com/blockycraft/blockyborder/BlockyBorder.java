@@ -2,9 +2,16 @@ package com.blockycraft.blockyborder;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
 import java.util.logging.Logger;
-import org.bukkit.Bukkit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -13,56 +20,183 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerListener;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.generator.BlockPopulator;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public class BlockyBorder extends JavaPlugin {
     private static final Logger LOG = Logger.getLogger("Minecraft");
-    private final BorderPlayerListener playerListener = new BorderPlayerListener();
+    private BorderPlayerListener playerListener;
     private Properties cfg = new Properties();
 
-    private boolean enabled, loopEnabled;
-    private double minX, maxX, minZ, maxZ, buffer;
-    private static final int IGNORE_TICKS = 3;
-    private final Map<UUID, Integer> ignoreBorderTicks = new ConcurrentHashMap<>();
+    private WorldBorder[] borders;
+    private double fillBudgetMs, fillMinTps;
+    private double fillHeapHigh, fillHeapLow;
+    private FillTraversal.Order fillOrder;
+    private boolean fillPrescan;
+    private int fillUnloadBatch;
+    private boolean fillPipeline;
+    private int fillPipelineThreads, fillPipelineDepth;
 
     private File fillJobFile;
-    private boolean isFilling = false; 
+    private FillScheduler fillScheduler;
+    private int fillCheckpointSeconds;
+    private double prewarmSeconds, prewarmReleaseSeconds;
+    private int prewarmRadius, prewarmPerTick, prewarmQueue;
+    private final TickMonitor tickMonitor = new TickMonitor();
+    private final PluginMetrics metrics = new PluginMetrics();
+    private MetricsCsvLog metricsCsv;
+    private ChunkChangelog changelog;
+    private int recorderTaskId = -1;
+    private int changelogSegmentRecords, changelogMaxSegments;
+    private int metricsSeconds, metricsKeepDays;
+    private boolean metricsJmx;
 
     // --- Constantes para Polimento ---
     private static final int DEFAULT_FILL_FREQ = 5;
     private static final int DEFAULT_FILL_PAD = 0;
-    private static final int DEFAULT_FILL_STEP = 40000;
     private static final int TASK_START_DELAY_TICKS = 20; // 1 segundo
     private static final int TASK_REPEAT_TICKS = 1;
-    private static final int LOG_FREQUENCY = 1000;
-    private static final int SHUTDOWN_SAVE_DELAY_TICKS = 20; // 1 segundo (Delay ANTES de salvar)
-    private static final int SHUTDOWN_FINAL_DELAY_TICKS = 100; // 5 segundos (Delay DEPOIS de salvar)
-    
-    private static final int STEP_OVERLAP_COLUMNS = 10; // "Rebobina" 10 colunas (Chunks no eixo X)
+    private static final double DEFAULT_HEAP_HIGH = 0.80D;
+    private static final double DEFAULT_HEAP_LOW = 0.60D;
+    private static final int DEFAULT_UNLOAD_BATCH = 32; // chunks salvos/descarregados por tick
+    private static final int DEFAULT_CHECKPOINT_SECONDS = 5;
+    private static final int DEFAULT_PIPELINE_DEPTH = 64; // arrays de 32 KB encomendados à frente
+    private static final int SAFE_LANDING_RADIUS = 8; // blocos ao longo da borda atrás de pouso sem água
+    private static final long RATE_ROLL_TICKS = 20L;
+    private static final double DEFAULT_PREWARM_DISTANCE = 48.0D; // blocos da borda em que os jogadores são acompanhados
+    private static final double DEFAULT_PREWARM_SECONDS = 3.0D;
+    private static final double DEFAULT_PREWARM_RELEASE_SECONDS = 10.0D;
+    private static final int DEFAULT_PREWARM_RADIUS = 1; // 3x3 chunks em volta do destino
+    private static final int DEFAULT_PREWARM_PER_TICK = 2;
+    private static final int DEFAULT_PREWARM_QUEUE = 64;
+    private static final int EDGE_INDEX_CHUNKS_PER_TICK = 4;
+    private static final int DEFAULT_METRICS_SECONDS = 60;
+    private static final int DEFAULT_METRICS_KEEP_DAYS = 7;
+    private static final int DEFAULT_CHANGELOG_SEGMENT_RECORDS = 1 << 20; // 20 MB por segmento
+    private static final int DEFAULT_CHANGELOG_MAX_SEGMENTS = 32;
+    private static final long CHANGELOG_FLUSH_TICKS = 20L;
+    private static final long TRACE_FLUSH_TICKS = 20L;
+    private static final int DEFAULT_PRIORITY_RADIUS = 16; // além da distância de visão padrão (10)
+    private static final double DEFAULT_PRIORITY_WRAP_SECONDS = 300.0D;
+    private static final int DEFAULT_TRIM_MARGIN = 2; // chunks além da borda que o /trim mantém
+    private static final String TRIM_PENDING_FILE = "trim_pending.txt";
+    private static final String JMX_FILL = "com.blockycraft.blockyborder:type=Fill";
+    private static final String JMX_BORDER = "com.blockycraft.blockyborder:type=Border";
+
+    /** Antes de os mundos carregarem: troca as regiões compactadas pelo /trim. */
+    @Override
+    public void onLoad() {
+        File pending = new File(getDataFolder(), TRIM_PENDING_FILE);
+        if (!pending.exists()) return;
+        // No /reload os mundos já estão carregados, com os .mcr abertos pelo servidor:
+        // trocar os arquivos agora perderia as gravações dele e o trim.
+        if (!getServer().getWorlds().isEmpty()) {
+            LOG.info("[BlockyBorder] Regiões compactadas pelo /trim ficam para a próxima inicialização do servidor (os mundos já estão carregados).");
+            return;
+        }
+        try {
+            for (String dir : new LinkedHashSet<>(Files.readAllLines(pending.toPath(), StandardCharsets.UTF_8)))
+                if (!dir.trim().isEmpty()) RegionTrimmer.applyPending(new File(dir.trim()));
+            Files.delete(pending.toPath());
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao aplicar as regiões compactadas pelo /trim: " + e.getMessage());
+        }
+    }
 
     public void onEnable() {
         getDataFolder().mkdirs();
         loadConfig(); 
-        fillJobFile = new File(getDataFolder(), "fill_job.properties"); 
+        fillJobFile = new File(getDataFolder(), "fill_job.properties"); // formato antigo, só para migração
 
+        this.playerListener = new BorderPlayerListener(this.borders, this.tickMonitor,
+            new BorderPlayerListener.Teleporter() {
+                public void teleport(WorldBorder border, Player player, Location destination) { BlockyBorder.this.safeTeleport(border, player, destination); }
+            });
+        for (WorldBorder border : this.borders) {
+            World world = getServer().getWorld(border.world);
+            BorderBounds b = border.bounds;
+            int priorityRadius = (int)doubleProp(border.world, "fill-priority-radius", DEFAULT_PRIORITY_RADIUS);
+            if (priorityRadius > 0)
+                border.priority = new FillPriority(priorityRadius,
+                    (long)(doubleProp(border.world, "fill-priority-wrap-seconds", DEFAULT_PRIORITY_WRAP_SECONDS) * 20));
+            if (b.loop && boolProp(border.world, "prewarm", true))
+                border.prewarmer = new WrapPrewarmer(world, (int)(this.prewarmSeconds * 20), this.prewarmRadius,
+                    this.prewarmPerTick, this.prewarmQueue, (int)(this.prewarmReleaseSeconds * 20));
+            // O índice guarda as quatro linhas retas de destino; num formato o destino varia com a linha.
+            if (b.loop && b.shape == null && boolProp(border.world, "edge-index", true)) {
+                border.edgeIndex = new EdgeHeightIndex(border.world, b);
+                try {
+                    if (border.edgeIndex.load(border.edgeIndexFile))
+                        LOG.info("[BlockyBorder] Índice de alturas da borda de '" + border.world + "' carregado: " + border.edgeIndex.getKnown()
+                            + " de " + border.edgeIndex.getColumns() + " colunas.");
+                } catch (IOException e) {
+                    LOG.warning("[BlockyBorder] Falha ao ler o índice de alturas da borda de '" + border.world + "': " + e.getMessage());
+                }
+                EdgeBlockListener blockListener = new EdgeBlockListener(this, border.edgeIndex);
+                getServer().getPluginManager().registerEvent(Event.Type.BLOCK_PLACE, (Listener)blockListener, Event.Priority.Monitor, (Plugin)this);
+                getServer().getPluginManager().registerEvent(Event.Type.BLOCK_BREAK, (Listener)blockListener, Event.Priority.Monitor, (Plugin)this);
+            }
+            LOG.info("[BlockyBorder] Border of '" + border.world + "' is at (" + b.minX + "," + b.minZ + ") to (" + b.maxX + "," + b.maxZ + "). Loop mode: " + b.loop);
+        }
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable() {
+            public void run() {
+                long tick = BlockyBorder.this.tickMonitor.getTick();
+                for (WorldBorder border : BlockyBorder.this.borders)
+                    if (border.prewarmer != null) border.prewarmer.tick(tick);
+            }
+        }, 1L, 1L);
         getServer().getPluginManager().registerEvent(Event.Type.PLAYER_MOVE, (Listener)this.playerListener, Event.Priority.Normal, (Plugin)this);
-        LOG.info("[BlockyBorder] Enabled. Border is at (" + this.minX + "," + this.minZ + ") to (" + this.maxX + "," + this.maxZ + "). Loop mode: " + this.loopEnabled);
+        getServer().getPluginManager().registerEvent(Event.Type.PLAYER_QUIT, (Listener)this.playerListener, Event.Priority.Monitor, (Plugin)this);
+        LOG.info("[BlockyBorder] Enabled. " + this.borders.length + " world(s) with border.");
         
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, this.tickMonitor, 1L, 1L);
         getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable() {
-            public void run() { BlockyBorder.this.borderIgnoreTick(); }
-        }, 1L, 1L);
+            public void run() { BlockyBorder.this.playerListener.rollRates(System.nanoTime()); }
+        }, RATE_ROLL_TICKS, RATE_ROLL_TICKS);
+        long checkpointTicks = this.fillCheckpointSeconds * 20L;
+        for (WorldBorder border : this.borders)
+            getServer().getScheduler().scheduleAsyncRepeatingTask(this, border.checkpoints, checkpointTicks, checkpointTicks);
+        this.fillScheduler = new FillScheduler(this, new HeapWatermarks(this.fillHeapHigh, this.fillHeapLow), this.fillUnloadBatch);
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, this.fillScheduler, TASK_START_DELAY_TICKS, TASK_REPEAT_TICKS);
 
-        resumeFillJob();
+        startMetrics();
+        startChangelog();
+        if (boolProp("trace-record", false))
+            startRecording();
+        resumeFillJobs();
     }
 
     public void onDisable() {
+        if (this.borders == null) return;
+        for (WorldBorder border : this.borders) {
+            if (border.fillJob != null) {
+                border.fillJob.closePipeline();
+                border.fillJob.saveRemaining();
+            }
+            try {
+                border.checkpoints.writePending();
+            } catch (IOException e) {
+                LOG.warning("[BlockyBorder] Falha ao gravar checkpoint final do job de '" + border.world + "': " + e.getMessage());
+            }
+            saveEdgeIndex(border);
+        }
+        stopRecording();
+        if (this.changelog != null)
+            try {
+                this.changelog.flush();
+            } catch (IOException e) {
+                LOG.warning("[BlockyBorder] Falha ao gravar o registro de chunks alterados: " + e.getMessage());
+            }
+        if (this.metricsJmx) unregisterMBeans();
         LOG.info("[BlockyBorder] Disabled.");
     }
 
+    /**
+     * Mundos com borda: o principal e os listados em {@code worlds}. Cada chave
+     * pode ser dada por mundo como {@code <mundo>.<chave>} (ex.:
+     * {@code world_nether.x1}); sem ela vale a chave sem prefixo.
+     */
     private void loadConfig() {
         File configFile = new File(getDataFolder(), "config.properties");
         if (!configFile.exists())
@@ -87,15 +221,82 @@ public class BlockyBorder extends JavaPlugin {
         } catch (Exception e) {
             LOG.warning("[BlockyBorder] Could not read config: " + e.getMessage());
         }
-        this.enabled = boolProp("enabled", true);
-        this.loopEnabled = boolProp("loop", true);
-        double x1 = doubleProp("x1", -5376.0D), z1 = doubleProp("z1", -2688.0D);
-        double x2 = doubleProp("x2", 5376.0D), z2 = doubleProp("z2", 2688.0D);
-        this.minX = Math.min(x1, x2);
-        this.maxX = Math.max(x1, x2);
-        this.minZ = Math.min(z1, z2);
-        this.maxZ = Math.max(z1, z2);
-        this.buffer = doubleProp("buffer", 2.0D);
+        String mainWorld = getServer().getWorlds().get(0).getName();
+        Set<String> names = new LinkedHashSet<>();
+        names.add(mainWorld);
+        for (String name : this.cfg.getProperty("worlds", "").split(","))
+            if (!name.trim().isEmpty()) names.add(name.trim());
+        List<WorldBorder> list = new ArrayList<>();
+        for (String name : names) {
+            if (getServer().getWorld(name) == null) {
+                LOG.warning("[BlockyBorder] Mundo '" + name + "' listado em 'worlds' não está carregado; ignorado.");
+                continue;
+            }
+            double x1 = doubleProp(name, "x1", -5376.0D), z1 = doubleProp(name, "z1", -2688.0D);
+            double x2 = doubleProp(name, "x2", 5376.0D), z2 = doubleProp(name, "z2", 2688.0D);
+            boolean prewarm = boolProp(name, "prewarm", true);
+            double margin = prewarm ? doubleProp(name, "prewarm-distance", DEFAULT_PREWARM_DISTANCE) : BorderBounds.SAFE_MARGIN;
+            BorderShape shape = loadShape(name);
+            BorderBounds bounds = shape != null
+                ? new BorderBounds(boolProp(name, "enabled", true), boolProp(name, "loop", true), shape, doubleProp(name, "buffer", 2.0D), margin)
+                : new BorderBounds(boolProp(name, "enabled", true), boolProp(name, "loop", true),
+                    Math.min(x1, x2), Math.max(x1, x2), Math.min(z1, z2), Math.max(z1, z2), doubleProp(name, "buffer", 2.0D), margin);
+            list.add(new WorldBorder(name, bounds, getDataFolder(), name.equals(mainWorld)));
+        }
+        this.borders = list.toArray(new WorldBorder[0]);
+        // Opcionais: sem eles o /fill usa o modo antigo de 'freq' chunks por tick.
+        this.fillBudgetMs = doubleProp("fill-budget-ms", 0.0D);
+        this.fillMinTps = doubleProp("fill-min-tps", 0.0D);
+        this.fillHeapHigh = doubleProp("fill-heap-high", DEFAULT_HEAP_HIGH);
+        this.fillHeapLow = doubleProp("fill-heap-low", DEFAULT_HEAP_LOW);
+        this.fillUnloadBatch = Math.max(1, (int)doubleProp("fill-unload-batch", DEFAULT_UNLOAD_BATCH));
+        this.fillOrder = FillTraversal.Order.parse(this.cfg.getProperty("fill-order"), FillTraversal.Order.REGION);
+        this.fillPrescan = boolProp("fill-prescan", true);
+        this.fillCheckpointSeconds = Math.max(1, (int)doubleProp("fill-checkpoint-interval", DEFAULT_CHECKPOINT_SECONDS));
+        // Desligado por padrão: só é seguro se o gerador do mundo for thread-safe.
+        this.fillPipeline = boolProp("fill-pipeline", false);
+        this.fillPipelineThreads = Math.max(1, (int)doubleProp("fill-pipeline-threads", Runtime.getRuntime().availableProcessors() - 1));
+        this.fillPipelineDepth = Math.max(1, (int)doubleProp("fill-pipeline-depth", DEFAULT_PIPELINE_DEPTH));
+        this.prewarmSeconds = doubleProp("prewarm-seconds", DEFAULT_PREWARM_SECONDS);
+        this.prewarmReleaseSeconds = doubleProp("prewarm-release-seconds", DEFAULT_PREWARM_RELEASE_SECONDS);
+        this.prewarmRadius = Math.max(0, (int)doubleProp("prewarm-radius", DEFAULT_PREWARM_RADIUS));
+        this.prewarmPerTick = Math.max(1, (int)doubleProp("prewarm-chunks-per-tick", DEFAULT_PREWARM_PER_TICK));
+        this.prewarmQueue = Math.max(1, (int)doubleProp("prewarm-queue", DEFAULT_PREWARM_QUEUE));
+        this.metricsSeconds = Math.max(1, (int)doubleProp("metrics-interval", DEFAULT_METRICS_SECONDS));
+        this.metricsKeepDays = Math.max(1, (int)doubleProp("metrics-keep-days", DEFAULT_METRICS_KEEP_DAYS));
+        this.metricsJmx = boolProp("metrics-jmx", true);
+        if (boolProp("metrics-csv", true))
+            this.metricsCsv = new MetricsCsvLog(new File(getDataFolder(), "metrics"), this.metricsKeepDays);
+        this.changelogSegmentRecords = Math.max(1024, (int)doubleProp("changelog-segment-records", DEFAULT_CHANGELOG_SEGMENT_RECORDS));
+        this.changelogMaxSegments = Math.max(1, (int)doubleProp("changelog-max-segments", DEFAULT_CHANGELOG_MAX_SEGMENTS));
+    }
+
+    /**
+     * Formato da borda do mundo: {@code polygon} ou {@code ellipse}, se
+     * houver; senão null e vale o retângulo de x1/z1/x2/z2.
+     */
+    private BorderShape loadShape(String world) {
+        String polygon = prop(world, "polygon"), ellipse = prop(world, "ellipse");
+        try {
+            if (polygon != null) return BorderShape.parsePolygon(polygon);
+            if (ellipse != null) return BorderShape.parseEllipse(ellipse);
+        } catch (IllegalArgumentException e) {
+            LOG.warning("[BlockyBorder] Formato da borda de '" + world + "' inválido (" + e.getMessage() + "); usando o retângulo.");
+        }
+        return null;
+    }
+
+    private String prop(String world, String key) {
+        String val = this.cfg.getProperty(world + "." + key);
+        return val != null ? val : this.cfg.getProperty(key);
+    }
+
+    private boolean boolProp(String world, String key, boolean def) {
+        return this.cfg.getProperty(world + "." + key) != null ? boolProp(world + "." + key, def) : boolProp(key, def);
+    }
+
+    private double doubleProp(String world, String key, double def) {
+        return this.cfg.getProperty(world + "." + key) != null ? doubleProp(world + "." + key, def) : doubleProp(key, def);
     }
 
     private boolean boolProp(String key, boolean def) {
@@ -111,342 +312,724 @@ public class BlockyBorder extends JavaPlugin {
         }
     }
 
-    private void safeTeleport(Player player, Location location) {
-        World world = location.getWorld();
-        int x = location.getBlockX(), z = location.getBlockZ();
-        int highestY = world.getHighestBlockYAt(x, z);
-        location.setY(highestY + 1.2D);
-        this.ignoreBorderTicks.put(player.getUniqueId(), Integer.valueOf(BlockyBorder.IGNORE_TICKS));
-        forcePopulate(world, x >> 4, z >> 4);
+    private void safeTeleport(WorldBorder border, Player player, Location location) {
+        prepareTeleport(border, location);
         player.teleport(location);
     }
 
-    public void borderIgnoreTick() {
-        Iterator<Map.Entry<UUID, Integer>> it = this.ignoreBorderTicks.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<UUID, Integer> entry = it.next();
-            int ticks = ((Integer)entry.getValue()).intValue() - 1;
-            if (ticks <= 0) {
-                it.remove();
-                continue;
+    /**
+     * Tudo o que o wrap faz antes do teleporte: gera o destino se ele não
+     * estiver pré-carregado, avisa a fila do /fill e acerta a altura (e, sobre
+     * água, a coluna) em {@code location}. O ReplayHarness usa o mesmo caminho.
+     */
+    void prepareTeleport(WorldBorder border, Location location) {
+        World world = location.getWorld();
+        int x = location.getBlockX(), z = location.getBlockZ();
+        // Destino pré-carregado: é só teleportar, o chunk já está pronto em memória.
+        boolean warm = border.prewarmer != null && border.prewarmer.isWarm(world, x >> 4, z >> 4);
+        if (!warm)
+            forcePopulate(world, x >> 4, z >> 4, null, ChunkChangelog.WRAP);
+        if (border.priority != null)
+            border.priority.noteWrap(x >> 4, z >> 4, this.tickMonitor.getTick());
+        EdgeHeightIndex index = border.edgeIndex;
+        int landingY = index != null ? landingY(index, world, x, z) : EdgeHeightIndex.UNKNOWN;
+        if (landingY == EdgeHeightIndex.UNSAFE) {
+            // Água ou lava no destino: pousa na coluna segura mais próxima da mesma linha.
+            long column = index.nearestSafeColumn(x, z, SAFE_LANDING_RADIUS);
+            if (column != EdgeHeightIndex.NO_COLUMN) {
+                int nx = (int)(column >> 32), nz = (int)column;
+                int ny = landingY(index, world, nx, nz);
+                if (ny >= 0) {
+                    location.setX(location.getX() + (nx - x));
+                    location.setZ(location.getZ() + (nz - z));
+                    x = nx;
+                    z = nz;
+                    landingY = ny;
+                }
             }
-            entry.setValue(Integer.valueOf(ticks));
         }
+        if (landingY >= 0) {
+            location.setY(landingY + 1.2D);
+        } else {
+            int highestY = world.getHighestBlockYAt(x, z);
+            location.setY(highestY + 1.2D);
+        }
+    }
+
+    /**
+     * Altura do índice para a coluna, conferida no mundo: uma coluna ainda
+     * desconhecida é calculada agora (o chunk já está carregado) e uma cujos
+     * blocos do jogador deixaram de ser ar é recalculada.
+     */
+    private static int landingY(EdgeHeightIndex index, World world, int x, int z) {
+        int y = index.landingY(x, z);
+        if (y == EdgeHeightIndex.UNKNOWN || (y >= 0 && !EdgeHeightIndex.isClear(world, x, y, z))) {
+            index.updateColumn(world, x, z);
+            y = index.landingY(x, z);
+        }
+        return y;
     }
 
-    private void forcePopulate(World world, int chunkX, int chunkZ) {
+    TickMonitor getTickMonitor() { return this.tickMonitor; }
+
+    private WorldBorder borderFor(String world) {
+        for (WorldBorder border : this.borders)
+            if (border.world.equalsIgnoreCase(world)) return border;
+        return null;
+    }
+
+    /** Chamado pelo /fill para cada chunk assentado, logo antes de descarregá-lo. */
+    void chunkSettled(WorldBorder border, World world, int chunkX, int chunkZ) {
+        if (border.edgeIndex != null)
+            border.edgeIndex.updateChunk(world, chunkX, chunkZ);
+    }
+
+    private void saveEdgeIndex(WorldBorder border) {
+        if (border.edgeIndex == null || !border.edgeIndex.isDirty()) return;
+        try {
+            border.edgeIndex.save(border.edgeIndexFile);
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao salvar o índice de alturas da borda de '" + border.world + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Com {@code timings}, mede separadamente o getChunkAt e os populators.
+     * O chunk entra no registro de alterações com a origem {@code source}.
+     */
+    void forcePopulate(World world, int chunkX, int chunkZ, PluginMetrics timings, byte source) {
+        long start = System.nanoTime();
         Chunk c = world.getChunkAt(chunkX, chunkZ); 
         if (c == null) {
             LOG.warning("[BlockyBorder] Falha ao carregar/gerar chunk em " + chunkX + "," + chunkZ);
             return; 
         }
+        long loaded = System.nanoTime();
         Random rand = new Random(world.getSeed());
         rand.setSeed(chunkX * 341873128712L + chunkZ * 132897987541L);
         for (BlockPopulator pop : world.getPopulators()) {
             pop.populate(world, rand, c);
         }
+        if (timings != null)
+            timings.recordChunk(loaded - start, System.nanoTime() - loaded);
+        if (this.changelog != null)
+            this.changelog.record(world.getName(), chunkX, chunkZ, source);
     }
 
+    /** Abre o registro de chunks alterados e grava o buffer dele a cada segundo. */
+    private void startChangelog() {
+        if (!boolProp("changelog", true)) return;
+        try {
+            this.changelog = new ChunkChangelog(new File(getDataFolder(), "changelog"), this.changelogSegmentRecords, this.changelogMaxSegments);
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao abrir o registro de chunks alterados; ele fica desligado: " + e.getMessage());
+            return;
+        }
+        getServer().getScheduler().scheduleAsyncRepeatingTask(this, this.changelog, CHANGELOG_FLUSH_TICKS, CHANGELOG_FLUSH_TICKS);
+    }
 
-    private class BorderPlayerListener extends PlayerListener {
-        private BorderPlayerListener() {}
-        public void onPlayerMove(PlayerMoveEvent event) {
-            if (!BlockyBorder.this.enabled) return;
-            Player player = event.getPlayer();
-            if (BlockyBorder.this.ignoreBorderTicks.containsKey(player.getUniqueId())) return;
-            Location to = event.getTo();
-            double toX = to.getX(), toZ = to.getZ();
-            if (toX < BlockyBorder.this.minX || toX > BlockyBorder.this.maxX || toZ < BlockyBorder.this.minZ || toZ > BlockyBorder.this.maxZ)
-                if (BlockyBorder.this.loopEnabled) {
-                    Location newLoc = to.clone();
-                    if (toX < BlockyBorder.this.minX) newLoc.setX(BlockyBorder.this.maxX - BlockyBorder.this.buffer);
-                    else if (toX > BlockyBorder.this.maxX) newLoc.setX(BlockyBorder.this.minX + BlockyBorder.this.buffer);
-                    if (toZ < BlockyBorder.this.minZ) newLoc.setZ(BlockyBorder.this.maxZ - BlockyBorder.this.buffer);
-                    else if (toZ > BlockyBorder.this.maxZ) newLoc.setZ(BlockyBorder.this.minZ + BlockyBorder.this.buffer);
-                    BlockyBorder.this.safeTeleport(player, newLoc);
-                } else {
-                    Location from = event.getFrom(), safePos = from.clone();
-                    safePos.setX(Math.max(BlockyBorder.this.minX, Math.min(BlockyBorder.this.maxX, from.getX())));
-                    safePos.setZ(Math.max(BlockyBorder.this.minZ, Math.min(BlockyBorder.this.maxZ, from.getZ())));
-                    BlockyBorder.this.safeTeleport(player, safePos);
+    PluginMetrics getMetrics() { return this.metrics; }
+
+    /** Fecha um intervalo de métricas a cada metrics-interval, grava o CSV e registra os MBeans. */
+    private void startMetrics() {
+        if (this.metricsJmx) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                unregisterMBeans(); // sobra de um /reload
+                server.registerMBean(new StandardMBean(this.metrics, FillMetricsMBean.class), new ObjectName(JMX_FILL));
+                server.registerMBean(new StandardMBean(this.metrics, BorderMetricsMBean.class), new ObjectName(JMX_BORDER));
+            } catch (JMException e) {
+                LOG.warning("[BlockyBorder] Falha ao registrar as métricas no JMX: " + e.getMessage());
+            }
+        }
+        long ticks = this.metricsSeconds * 20L;
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable() {
+            public void run() {
+                BlockyBorder self = BlockyBorder.this;
+                PluginMetrics.Snapshot s = self.metrics.roll(System.nanoTime(), self.fillScheduler.getJobs(), self.playerListener,
+                    self.tickMonitor.getTps());
+                if (self.metricsCsv != null && s.intervalSeconds > 0) {
+                    self.metricsCsv.offer(s);
+                    getServer().getScheduler().scheduleAsyncDelayedTask(self, self.metricsCsv);
                 }
+            }
+        }, 1L, ticks);
+    }
+
+    private void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String name : new String[] { JMX_FILL, JMX_BORDER }) {
+            try {
+                ObjectName objectName = new ObjectName(name);
+                if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warning("[BlockyBorder] Falha ao remover " + name + " do JMX: " + e.getMessage());
+            }
         }
     }
 
-    private void startFillTask(Properties jobProps) {
-        World world = getServer().getWorlds().get(0);
 
-        int freq = Integer.parseInt(jobProps.getProperty("freq"));
-        int step = Integer.parseInt(jobProps.getProperty("step"));
-        int cmaxX = Integer.parseInt(jobProps.getProperty("cmaxX"));
-        int cminZ = Integer.parseInt(jobProps.getProperty("cminZ"));
-        int cmaxZ = Integer.parseInt(jobProps.getProperty("cmaxZ"));
-        int total = Integer.parseInt(jobProps.getProperty("total"));
-        int totalSteps = Integer.parseInt(jobProps.getProperty("totalSteps"));
-        int curX = Integer.parseInt(jobProps.getProperty("curX"));
-        int curZ = Integer.parseInt(jobProps.getProperty("curZ"));
-        int done = Integer.parseInt(jobProps.getProperty("done"));
-        int currentStep = Integer.parseInt(jobProps.getProperty("currentStep"));
-        int thisStep = Integer.parseInt(jobProps.getProperty("thisStep", "0"));
+    /**
+     * Abre o mapa de bits do trabalho e, se preciso, faz a varredura prévia das
+     * regiões antes de começar a gerar. {@code legacyPosition} é o cursor de um
+     * fill_job.properties antigo, ou -1.
+     */
+    private void startFillTask(WorldBorder border, FillJobState state, int legacyPosition) {
+        World world = getServer().getWorld(state.world);
+        if (world == null) {
+            LOG.warning("[BlockyBorder] Mundo '" + state.world + "' do job de pré-geração não encontrado.");
+            return;
+        }
 
-        this.isFilling = true;
-        
-        FillStepTask fillTask = new FillStepTask(world, jobProps, cmaxX, cminZ, cmaxZ, freq, step, total, totalSteps, curX, curZ, done, currentStep, thisStep);
-        int taskId = getServer().getScheduler().scheduleSyncRepeatingTask(this, fillTask, TASK_START_DELAY_TICKS, TASK_REPEAT_TICKS);
-        fillTask.setTaskId(taskId);
+        boolean legacy = legacyPosition >= 0 && !border.bitmapFile.exists();
+        ChunkBitmap bitmap;
+        try {
+            bitmap = ChunkBitmap.open(border.bitmapFile, state.minX, state.maxX, state.minZ, state.maxZ);
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao abrir o mapa de chunks do job: " + e.getMessage());
+            return;
+        }
+        if (legacy)
+            migrateLegacyCursor(legacyPosition, bitmap, state);
+        int ready = bitmap.count(ShapeGrid.forFill(border.bounds.shape, state.pad));
+        if (ready > 0)
+            LOG.info("[BlockyBorder] " + ready + " de " + state.total + " chunks de '" + state.world + "' já estão prontos e serão pulados.");
+
+        border.filling = true;
+        border.checkpoints.setBitmap(bitmap);
+        border.checkpoints.offer(state);
+        getServer().getScheduler().scheduleAsyncDelayedTask(this, border.checkpoints); // grava o início já
+        if (state.prescan && !state.scanned) {
+            startRegionScan(border, world, state, bitmap);
+            return;
+        }
+        scheduleFillTask(border, world, state, bitmap);
+    }
+
+    private void scheduleFillTask(WorldBorder border, World world, FillJobState state, ChunkBitmap bitmap) {
+        border.fillJob = new FillStepTask(this, border, world, state, bitmap);
+        if (boolProp(border.world, "fill-pipeline", this.fillPipeline))
+            border.fillJob.setPipeline(startPipeline(world, state, bitmap, border.fillJob.getShape()));
+        this.fillScheduler.add(border.fillJob);
+    }
+
+    /**
+     * Pipeline de geração do terreno para o /fill, ou null (modo serial). Só
+     * mundos com gerador customizado: o gerador do Minecraft guarda estado
+     * entre chamadas e não pode rodar fora da thread principal.
+     */
+    private ChunkPipeline startPipeline(World world, FillJobState state, ChunkBitmap bitmap, ShapeGrid shape) {
+        if (world.getGenerator() == null) {
+            LOG.info("[BlockyBorder] 'fill-pipeline' ignorado em '" + world.getName() + "': o gerador padrão não é thread-safe; gerando na thread principal.");
+            return null;
+        }
+        ChunkPipeline pipeline = new ChunkPipeline(world, world.getGenerator(), state, bitmap, shape,
+            this.fillPipelineThreads, this.fillPipelineDepth);
+        if (!pipeline.install()) {
+            LOG.warning("[BlockyBorder] Não foi possível instalar o pipeline de geração em '" + world.getName() + "'; gerando na thread principal.");
+            return null;
+        }
+        LOG.info("[BlockyBorder] Pipeline de geração ativo em '" + world.getName() + "': " + this.fillPipelineThreads
+            + " threads, " + this.fillPipelineDepth + " chunks à frente.");
+        return pipeline;
+    }
+
+    /**
+     * Varre os cabeçalhos das regiões numa thread assíncrona e, de volta à thread
+     * principal, marca no mapa de bits os chunks que já existem em disco (os
+     * carregados vão para o trabalho, que os marca quando forem salvos). Só depois disso
+     * a geração começa, visitando apenas os chunks que faltam.
+     */
+    private void startRegionScan(final WorldBorder border, final World world, final FillJobState state, final ChunkBitmap bitmap) {
+        final RegionScanner scanner = new RegionScanner(RegionScanner.findRegionDir(new File(world.getName())), state.minX, state.maxX, state.minZ, state.maxZ);
+        final Runnable apply = new Runnable() {
+            public void run() {
+                int before = bitmap.count();
+                BitSet present = scanner.getPresent();
+                for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1))
+                    bitmap.set(scanner.indexToX(i), scanner.indexToZ(i));
+
+                FillJobState scanned = state.withScanned();
+                border.checkpoints.offer(scanned);
+                scheduleFillTask(border, world, scanned, bitmap);
+                // Chunks carregados agora já existem, mas podem não estar salvos em disco:
+                // ficam com o trabalho, que só os marca no mapa de bits depois de salvos.
+                int loaded = 0;
+                for (Chunk c : world.getLoadedChunks())
+                    if (border.fillJob.adoptLoaded(c.getX(), c.getZ())) loaded++;
+
+                LOG.info("[BlockyBorder] Varredura concluída: " + scanner.getRegionsRead() + " regiões lidas, "
+                    + (bitmap.count() - before + loaded) + " chunks já existentes serão pulados, " + (bitmap.size() - bitmap.count() - loaded) + " faltando.");
+                if (scanner.getCorrupt() > 0)
+                    LOG.warning("[BlockyBorder] " + scanner.getCorrupt() + " chunks com setores corrompidos ou truncados (serão gerados de novo):");
+                for (String problem : scanner.getProblems())
+                    LOG.warning("[BlockyBorder]   " + problem);
+            }
+        };
+        scanner.setOnFinish(new Runnable() {
+            public void run() { getServer().getScheduler().scheduleSyncDelayedTask(BlockyBorder.this, apply); }
+        });
+        LOG.info("[BlockyBorder] Varrendo os cabeçalhos das regiões de '" + world.getName() + "' antes de gerar...");
+        getServer().getScheduler().scheduleAsyncDelayedTask(this, scanner);
+    }
+
+    /**
+     * Chunks do retângulo do trabalho que o formato cobre (mais {@code pad}):
+     * o total do /fill, já que os de fora são pulados na visita e nunca entram
+     * no mapa de bits.
+     */
+    private static int shapeChunks(BorderShape shape, int pad, int minX, int maxX, int minZ, int maxZ) {
+        ShapeGrid grid = ShapeGrid.forFill(shape, pad);
+        int n = 0;
+        for (int x = minX; x <= maxX; x++)
+            for (int z = minZ; z <= maxZ; z++)
+                if (grid.covers(x, z)) n++;
+        return n;
+    }
+
+    /**
+     * Jobs gravados antes do mapa de bits guardavam só um cursor (curX/curZ, ou a
+     * posição na ordem de visita). Marca como prontos os chunks antes dele.
+     */
+    private void migrateLegacyCursor(int position, ChunkBitmap bitmap, FillJobState state) {
+        FillTraversal traversal = state.order.create(state.minX, state.maxX, state.minZ, state.maxZ);
+        while (traversal.position() < position && traversal.hasNext()) {
+            long key = traversal.next();
+            bitmap.set((int)(key >> 32), (int)key);
+        }
+        bitmap.flush();
+        LOG.info("[BlockyBorder] Cursor antigo convertido: " + bitmap.count() + " chunks marcados como prontos.");
+    }
+
+    void fillJobFinished(WorldBorder border) {
+        border.checkpoints.clear();
+        saveEdgeIndex(border);
+        border.fillJob = null;
+        border.filling = false;
     }
 
-    private void resumeFillJob() {
-        if (!fillJobFile.exists()) {
+    /** Retoma o trabalho de cada mundo que tiver checkpoint; cada um segue independente. */
+    private void resumeFillJobs() {
+        WorldBorder main = this.borders[0]; // o mundo principal é sempre o primeiro
+        for (WorldBorder border : this.borders) {
+            if (!border.checkpoints.exists()) continue;
+            FillJobState state = border.checkpoints.load();
+            if (state == null) {
+                LOG.warning("[BlockyBorder] Nenhum checkpoint do job de pré-geração de '" + border.world + "' pôde ser lido; o job não será retomado.");
+                continue;
+            }
+            LOG.info("[BlockyBorder] Continuando trabalho de pré-geração de '" + border.world + "' (ordem " + state.order.name().toLowerCase() + ")...");
+            startFillTask(border, state, -1);
+        }
+        if (main.filling || !this.fillJobFile.exists()) {
             return; 
         }
 
+        // Job gravado por uma versão anterior em fill_job.properties.
         Properties jobProps = new Properties();
-        try (FileInputStream fis = new FileInputStream(fillJobFile)) {
+        try (FileInputStream fis = new FileInputStream(this.fillJobFile)) {
             jobProps.load(fis);
         } catch (Exception e) {
             LOG.warning("[BlockyBorder] Falha ao ler arquivo de job: " + e.getMessage());
             return;
         }
-
-        if (jobProps.getProperty("running", "false").equals("true")) {
-            int currentStep = Integer.parseInt(jobProps.getProperty("currentStep", "1"));
-            int totalSteps = Integer.parseInt(jobProps.getProperty("totalSteps", "1"));
-            LOG.info("[BlockyBorder] Continuando trabalho de pré-geração. Iniciando step " + currentStep + " de " + totalSteps + "...");
-            startFillTask(jobProps);
+        if (!jobProps.getProperty("running", "false").equals("true")) {
+            this.fillJobFile.delete();
+            return;
         }
-    }
-
-    public void saveFillJob(Properties jobProps) {
-        try (FileOutputStream fos = new FileOutputStream(fillJobFile)) {
-            jobProps.store(fos, "BlockyBorder Fill Job State");
-        } catch (Exception e) {
-            LOG.warning("[BlockyBorder] Falha ao salvar progresso do job: " + e.getMessage());
+        FillJobState state = FillJobState.fromProperties(jobProps, main.world);
+        int position = -1;
+        if (jobProps.getProperty("position") != null) {
+            position = Integer.parseInt(jobProps.getProperty("position"));
+        } else if (jobProps.getProperty("curX") != null) {
+            int curX = Integer.parseInt(jobProps.getProperty("curX"));
+            int curZ = Integer.parseInt(jobProps.getProperty("curZ"));
+            position = (curX - state.minX) * (state.maxZ - state.minZ + 1) + (curZ - state.minZ);
+        }
+        LOG.info("[BlockyBorder] Convertendo job antigo (fill_job.properties) e continuando a pré-geração...");
+        startFillTask(main, state, position);
+        try {
+            main.checkpoints.writePending();
+            this.fillJobFile.delete();
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao gravar checkpoint do job convertido: " + e.getMessage());
         }
     }
 
-
     @Override
     public boolean onCommand(CommandSender sender, Command cmd, String label, String[] args) {
+        if (cmd.getName().equalsIgnoreCase("border"))
+            return borderCommand(sender, args);
+        if (cmd.getName().equalsIgnoreCase("trim"))
+            return trimCommand(sender, args);
         if (!cmd.getName().equalsIgnoreCase("fill"))
             return false;
+        if (args.length >= 1 && args[0].equalsIgnoreCase("status"))
+            return fillStatus(sender);
+        if (args.length >= 1 && args[0].equalsIgnoreCase("changes"))
+            return fillChanges(sender, args);
 
-        if (this.isFilling) {
-            sender.sendMessage("§c[BlockyBorder] Um trabalho de pré-geração já está em andamento!");
-            return true;
+        // Argumentos posicionais: [freq] [pad]. Opções no formato chave=valor
+        // podem vir em qualquer posição: world=<mundo> budget=<ms por tick>
+        // mintps=<piso de TPS> order=column|region|spiral prescan=true|false.
+        List<String> positional = new ArrayList<>();
+        String worldName = sender instanceof Player ? ((Player)sender).getWorld().getName() : getServer().getWorlds().get(0).getName();
+        double budgetMs = this.fillBudgetMs, minTps = this.fillMinTps;
+        FillTraversal.Order order = this.fillOrder;
+        boolean prescan = this.fillPrescan;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                positional.add(arg);
+                continue;
+            }
+            String key = arg.substring(0, eq).toLowerCase(), val = arg.substring(eq + 1);
+            try {
+                if (key.equals("world")) worldName = val;
+                else if (key.equals("budget")) budgetMs = Math.max(0.0D, Double.parseDouble(val));
+                else if (key.equals("mintps")) minTps = Math.max(0.0D, Double.parseDouble(val));
+                else if (key.equals("order")) order = FillTraversal.Order.parse(val, order);
+                else if (key.equals("prescan")) prescan = val.equalsIgnoreCase("true");
+                else sender.sendMessage("§e[BlockyBorder] Opção desconhecida ignorada: " + key);
+            } catch (NumberFormatException e) {
+                sender.sendMessage("§e[BlockyBorder] Valor inválido para " + key + ": " + val);
+            }
         }
 
-        int freq = DEFAULT_FILL_FREQ, pad = DEFAULT_FILL_PAD, step = DEFAULT_FILL_STEP;
-        if (args.length >= 1)
-            try { freq = Math.max(1, Integer.parseInt(args[0])); } catch (Exception ignored) {}
-        if (args.length >= 2)
-            try { pad = Integer.parseInt(args[1]); } catch (Exception ignored) {}
-        if (args.length >= 3)
-            try { step = Math.max(freq, Integer.parseInt(args[2])); } catch (Exception ignored) {}
+        int freq = DEFAULT_FILL_FREQ, pad = DEFAULT_FILL_PAD;
+        if (positional.size() >= 1)
+            try { freq = Math.max(1, Integer.parseInt(positional.get(0))); } catch (Exception ignored) {}
+        if (positional.size() >= 2)
+            try { pad = Integer.parseInt(positional.get(1)); } catch (Exception ignored) {}
 
-        int cminX = ((int)this.minX >> 4) - pad, cmaxX = ((int)this.maxX >> 4) + pad;
-        int cminZ = ((int)this.minZ >> 4) - pad, cmaxZ = ((int)this.maxZ >> 4) + pad;
+        WorldBorder border = borderFor(worldName);
+        if (border == null) {
+            sender.sendMessage("§c[BlockyBorder] O mundo '" + worldName + "' não tem borda configurada.");
+            return true;
+        }
+        if (border.filling) {
+            sender.sendMessage("§c[BlockyBorder] Um trabalho de pré-geração já está em andamento em '" + border.world + "'!");
+            return true;
+        }
 
-        int total = (cmaxX - cminX + 1) * (cmaxZ - cminZ + 1);
-        int totalSteps = (int)Math.ceil((double)total / step);
-        if (totalSteps == 0) totalSteps = 1;
+        BorderBounds b = border.bounds;
+        int cminX = ((int)b.minX >> 4) - pad, cmaxX = ((int)b.maxX >> 4) + pad;
+        int cminZ = ((int)b.minZ >> 4) - pad, cmaxZ = ((int)b.maxZ >> 4) + pad;
 
-        Properties jobProps = new Properties();
-        jobProps.setProperty("running", "true");
-        jobProps.setProperty("freq", String.valueOf(freq));
-        jobProps.setProperty("pad", String.valueOf(pad));
-        jobProps.setProperty("step", String.valueOf(step));
-        jobProps.setProperty("cminX", String.valueOf(cminX));
-        jobProps.setProperty("cmaxX", String.valueOf(cmaxX));
-        jobProps.setProperty("cminZ", String.valueOf(cminZ));
-        jobProps.setProperty("cmaxZ", String.valueOf(cmaxZ));
-        jobProps.setProperty("total", String.valueOf(total));
-        jobProps.setProperty("totalSteps", String.valueOf(totalSteps));
-        jobProps.setProperty("curX", String.valueOf(cminX)); 
-        jobProps.setProperty("curZ", String.valueOf(cminZ)); 
-        jobProps.setProperty("done", "0"); 
-        jobProps.setProperty("currentStep", "1"); 
-        jobProps.setProperty("thisStep", "0"); 
-
-        saveFillJob(jobProps);
-        sender.sendMessage("§a[BlockyBorder] Iniciando pré-geração automática.");
-        sender.sendMessage("§aTotal de " + total + " chunks em " + totalSteps + " steps de " + step + " chunks.");
-        startFillTask(jobProps);
+        int area = (cmaxX - cminX + 1) * (cmaxZ - cminZ + 1);
+        int total = b.shape != null ? shapeChunks(b.shape, pad, cminX, cmaxX, cminZ, cmaxZ) : area;
+
+        FillJobState state = new FillJobState(border.world, freq, pad, cminX, cmaxX, cminZ, cmaxZ, total,
+            budgetMs, minTps, order, prescan, false, 0, 0);
+        sender.sendMessage("§a[BlockyBorder] Iniciando pré-geração automática de '" + border.world + "'.");
+        if (b.shape != null)
+            sender.sendMessage("§aFormato: " + b.shape + "; " + (area - total) + " chunks do retângulo ficam de fora.");
+        sender.sendMessage("§aTotal de " + total + " chunks, gerados numa única sessão (sem reinícios), ordem " + order.name().toLowerCase() + ".");
+        if (budgetMs > 0)
+            sender.sendMessage("§aModo adaptativo: " + budgetMs + " ms por tick" + (minTps > 0 ? ", TPS mínimo " + minTps : "") + ".");
+        if (this.fillScheduler.getJobs().size() > 0)
+            sender.sendMessage("§aOutros trabalhos em andamento: o orçamento de cada tick será dividido entre eles.");
+        startFillTask(border, state, -1);
 
         return true;
     }
 
-
-    class FillStepTask implements Runnable {
-        private final World world;
-        private final Properties jobProps;
-        private final int maxX, minZ, maxZ, freq, step, total, totalSteps;
-        private int curX, curZ, done, thisStep, currentStep;
-        private int logCounter = 0;
-        private int taskId;
-
-        FillStepTask(World w, Properties jobProps, int maxX, int minZ, int maxZ, int freq, int step, int total, int totalSteps, int curX, int curZ, int done, int currentStep, int thisStep) {
-            this.world = w;
-            this.jobProps = jobProps; 
-            this.maxX = maxX;
-            this.minZ = minZ;
-            this.maxZ = maxZ;
-            this.freq = freq;
-            this.step = step;
-            this.total = total;
-            this.totalSteps = totalSteps;
-            this.curX = curX;
-            this.curZ = curZ;
-            this.done = done;
-            this.currentStep = currentStep;
-            this.thisStep = thisStep; 
-        }
-
-        public void setTaskId(int id) { this.taskId = id; }
-
-        public void run() {
-            int count = 0;
-            
-            // --- INÍCIO DA CORREÇÃO (Bug do "Travamento Zumbi") ---
-            //
-            // A condição "done < total" foi REMOVIDA do loop.
-            // O contador 'done' não é mais confiável por causa da sobreposição (overlap).
-            // O loop agora SÓ depende das coordenadas (curX <= maxX) e do step.
-            //
-            while (count < this.freq && this.curX <= this.maxX && thisStep < step) {
-            // --- FIM DA CORREÇÃO ---
-                
-                if (this.curZ > this.maxZ) {
-                    this.curZ = this.minZ;
-                    this.curX++;
-                    continue;
-                }
-                
-                // Precisamos checar curX > maxX AQUI TAMBÉM, caso o curX++ acima
-                // tenha sido o último.
-                if (this.curX > this.maxX) break;
-
-                BlockyBorder.this.forcePopulate(this.world, this.curX, this.curZ);
-                
-                // 'done' agora é apenas para o log, não para a lógica.
-                if (this.done < this.total) {
-                    this.done++;
-                }
-                count++;
-                this.curZ++;
-                this.thisStep++;
-                this.logCounter++;
-
-                if (this.logCounter >= LOG_FREQUENCY) {
-                    double percent = (double)this.done / this.total * 100.0;
-                    // Limita a porcentagem a 99.99% se ainda não tiver terminado
-                    if (percent >= 100.0 && this.curX <= this.maxX) {
-                        percent = 99.99;
-                    }
-                    LOG.info(String.format("[BlockyBorder] Progresso: %d / %d chunks (%.2f%%)", this.done, this.total, percent));
-                    this.logCounter = 0;
-                }
+    /**
+     * {@code /trim [margem] [world=<mundo>] [dryrun=true]}: compacta numa
+     * thread assíncrona as regiões do mundo, tirando os chunks a mais de
+     * {@code margem} chunks da borda. As regiões novas entram no lugar das
+     * antigas na próxima inicialização.
+     */
+    private boolean trimCommand(final CommandSender sender, String[] args) {
+        String worldName = sender instanceof Player ? ((Player)sender).getWorld().getName() : getServer().getWorlds().get(0).getName();
+        int margin = (int)doubleProp("trim-margin", DEFAULT_TRIM_MARGIN);
+        boolean dryRun = false;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? "" : arg.substring(0, eq).toLowerCase(), val = arg.substring(eq + 1);
+            try {
+                if (eq < 0) margin = Math.max(0, Integer.parseInt(arg));
+                else if (key.equals("world")) worldName = val;
+                else if (key.equals("dryrun")) dryRun = val.equalsIgnoreCase("true");
+                else sender.sendMessage("§e[BlockyBorder] Opção desconhecida ignorada: " + key);
+            } catch (NumberFormatException e) {
+                sender.sendMessage("§e[BlockyBorder] Valor inválido: " + arg);
             }
+        }
+        final WorldBorder border = borderFor(worldName);
+        if (border == null) {
+            sender.sendMessage("§c[BlockyBorder] O mundo '" + worldName + "' não tem borda configurada.");
+            return true;
+        }
+        if (border.filling || border.trimmer != null) {
+            sender.sendMessage("§c[BlockyBorder] Espere o " + (border.filling ? "/fill" : "/trim") + " em andamento em '" + border.world + "' terminar.");
+            return true;
+        }
+        World world = getServer().getWorld(border.world);
+        // Regiões com chunks carregados ficam como estão: o servidor pode gravar nelas a qualquer momento.
+        Set<Long> loaded = new HashSet<>();
+        for (Chunk c : world.getLoadedChunks())
+            loaded.add(ChunkUnloader.key(c.getX() >> 5, c.getZ() >> 5));
 
-            this.jobProps.setProperty("curX", String.valueOf(this.curX));
-            this.jobProps.setProperty("curZ", String.valueOf(this.curZ));
-            this.jobProps.setProperty("done", String.valueOf(this.done));
-            this.jobProps.setProperty("thisStep", String.valueOf(this.thisStep));
-            BlockyBorder.this.saveFillJob(this.jobProps);
-
-            // 1. O TRABALHO INTEIRO TERMINOU? (Baseado em Coordenadas)
-            if (this.curX > this.maxX) {
-                LOG.info("[BlockyBorder] Mapa completo! Todas as colunas X foram processadas.");
-                if (BlockyBorder.this.fillJobFile.exists()) {
-                    BlockyBorder.this.fillJobFile.delete(); 
+        final File regionDir = RegionScanner.findRegionDir(new File(world.getName()));
+        final RegionTrimmer trimmer = new RegionTrimmer(regionDir, keepPredicate(border.bounds, margin), loaded, dryRun);
+        border.trimmer = trimmer;
+        final Runnable report = new Runnable() {
+            public void run() {
+                border.trimmer = null;
+                long saved = trimmer.getBytesBefore() - trimmer.getBytesAfter();
+                String msg = "[BlockyBorder] /trim de '" + border.world + "'" + (trimmer.isDryRun() ? " (simulação)" : "") + ": "
+                    + trimmer.getRegionsRead() + " regiões lidas, " + trimmer.getRegionsSkipped() + " puladas (carregadas), "
+                    + trimmer.getChunksRemoved() + " chunks fora da borda em " + trimmer.getRegionsTrimmed() + " regiões, "
+                    + trimmer.getChunksKept() + " mantidos. " + String.format("%.1f MB", saved / 1048576.0D)
+                    + (trimmer.isDryRun() ? " seriam liberados." : " serão liberados na próxima inicialização.");
+                LOG.info(msg);
+                sender.sendMessage("§a" + msg);
+                for (String problem : trimmer.getProblems()) {
+                    LOG.warning("[BlockyBorder]   " + problem);
+                    sender.sendMessage("§e  " + problem);
                 }
-                BlockyBorder.this.isFilling = false; 
-                Bukkit.getScheduler().cancelTask(this.taskId);
-                return;
+                if (!trimmer.isDryRun() && trimmer.getRegionsTrimmed() > 0)
+                    markTrimPending(regionDir);
             }
+        };
+        trimmer.setOnFinish(new Runnable() {
+            public void run() { getServer().getScheduler().scheduleSyncDelayedTask(BlockyBorder.this, report); }
+        });
+        sender.sendMessage("§a[BlockyBorder] " + (dryRun ? "Simulando o /trim" : "Compactando as regiões") + " de '" + border.world
+            + "' (margem de " + margin + " chunks, " + loaded.size() + " regiões carregadas serão puladas)...");
+        getServer().getScheduler().scheduleAsyncDelayedTask(this, trimmer);
+        return true;
+    }
 
-            // 2. ESTE STEP TERMINOU (E O TRABALHO AINDA NÃO)?
-            if (thisStep >= step) {
-                LOG.info("[BlockyBorder] Fim do step " + this.currentStep + "/" + this.totalSteps + ".");
-                LOG.info("[BlockyBorder] Agendando reinício gracioso com sobreposição (overlap)...");
+    /** Chunks que o /trim mantém: dentro da borda ou a até {@code margin} chunks dela. */
+    private static RegionTrimmer.Keep keepPredicate(BorderBounds b, int margin) {
+        if (b.shape != null) {
+            final ShapeGrid grid = new ShapeGrid(b.shape, margin * 16.0D);
+            return new RegionTrimmer.Keep() {
+                public boolean keep(int chunkX, int chunkZ) { return grid.covers(chunkX, chunkZ); }
+            };
+        }
+        final int minX = ((int)b.minX >> 4) - margin, maxX = ((int)b.maxX >> 4) + margin;
+        final int minZ = ((int)b.minZ >> 4) - margin, maxZ = ((int)b.maxZ >> 4) + margin;
+        return new RegionTrimmer.Keep() {
+            public boolean keep(int chunkX, int chunkZ) { return chunkX >= minX && chunkX <= maxX && chunkZ >= minZ && chunkZ <= maxZ; }
+        };
+    }
 
-                BlockyBorder.this.isFilling = false;
-                Bukkit.getScheduler().cancelTask(this.taskId);
+    private void markTrimPending(File regionDir) {
+        try {
+            Files.write(new File(getDataFolder(), TRIM_PENDING_FILE).toPath(),
+                (regionDir.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao anotar as regiões compactadas pelo /trim: " + e.getMessage());
+        }
+    }
 
-                Bukkit.getScheduler().scheduleSyncDelayedTask(BlockyBorder.this, 
-                    new ShutdownTask(BlockyBorder.this, this.jobProps, this.currentStep + 1), 
-                    SHUTDOWN_SAVE_DELAY_TICKS); // Espera 1 segundo
-                
-                return; 
-            }
+    private boolean fillStatus(CommandSender sender) {
+        PluginMetrics.Snapshot s = this.metrics.getSnapshot();
+        List<FillStepTask> jobs = this.fillScheduler.getJobs();
+        if (jobs.isEmpty())
+            sender.sendMessage("§a[BlockyBorder] Nenhum trabalho de pré-geração gerando agora.");
+        for (FillStepTask job : jobs) {
+            FillJobState state = job.getState();
+            double rate = job.getRate().perSecond();
+            long remaining = state.total - job.getDone();
+            sender.sendMessage(String.format("§a[BlockyBorder] '%s': %d / %d chunks (%.2f%%), %.1f chunks/s, ETA %s.",
+                state.world, job.getDone(), state.total, job.getDone() * 100.0D / state.total, rate,
+                rate > 0 ? formatDuration((long)(remaining / rate)) : "?"));
+            FillPriority priority = job.getBorder().priority;
+            if (priority != null && priority.getPromoted() > 0)
+                sender.sendMessage("§a  " + priority.getPromoted() + " chunks adiantados por estarem perto de jogadores ou de destinos de wrap ("
+                    + priority.getQueued() + " na fila).");
+            ChunkPipeline pipeline = job.getPipeline();
+            if (pipeline != null)
+                sender.sendMessage("§a  Pipeline: " + pipeline.getAhead() + " chunks à frente, " + pipeline.getServed()
+                    + " entregues prontos, " + pipeline.getMissed() + " falhas.");
+        }
+        for (WorldBorder border : this.borders)
+            if (border.filling && border.fillJob == null)
+                sender.sendMessage("§a[BlockyBorder] '" + border.world + "': varrendo as regiões antes de gerar...");
+        if (s.intervalSeconds == 0) {
+            sender.sendMessage("§aAs métricas ficam prontas depois do primeiro intervalo (" + this.metricsSeconds + " s).");
+            return true;
         }
+        sender.sendMessage(String.format("§aÚltimos %.0f s: %.1f chunks/s, ETA total %s.", s.intervalSeconds, s.chunksPerSecond,
+            s.etaSeconds >= 0 ? formatDuration(s.etaSeconds) : "?"));
+        sender.sendMessage(String.format("§agetChunkAt p50/p95/p99: %.2f / %.2f / %.2f ms. Populators: %.2f / %.2f / %.2f ms.",
+            s.getChunkP50, s.getChunkP95, s.getChunkP99, s.populateP50, s.populateP95, s.populateP99));
+        sender.sendMessage(String.format("§aCusto do /fill por tick: média %.2f ms, p99 %.2f ms, máx %.2f ms. TPS %.1f.",
+            s.tickCostMean, s.tickCostP99, s.tickCostMax, s.tps));
+        sender.sendMessage(String.format("§aBorda: %.0f checagens/s, custo p50/p99 %d / %d ns, %.1f teleportes/min.",
+            s.checksPerSecond, s.checkP50, s.checkP99, s.teleportsPerMinute));
+        return true;
     }
 
     /**
-     * Tarefa de Desligamento (Corrigida para o bug do 'done')
+     * {@code /fill changes}: offsets disponíveis no registro. Com um offset,
+     * conta (numa thread assíncrona) os chunks alterados desde ele, por mundo.
      */
-    class ShutdownTask implements Runnable {
-        private final BlockyBorder plugin;
-        private final Properties jobProps;
-        private final int nextStep;
-
-        ShutdownTask(BlockyBorder plugin, Properties jobProps, int nextStep) {
-            this.plugin = plugin;
-            this.jobProps = jobProps;
-            this.nextStep = nextStep;
+    private boolean fillChanges(final CommandSender sender, String[] args) {
+        final ChunkChangelog log = this.changelog;
+        if (log == null) {
+            sender.sendMessage("§c[BlockyBorder] O registro de chunks alterados está desligado (changelog=false).");
+            return true;
         }
-
-        public void run() {
-            LOG.info("[BlockyBorder] ShutdownTask: Iniciando processo de reinício.");
-
-            // --- LÓGICA DE SOBREPOSIÇÃO (OVERLAP) ---
-            int curX = Integer.parseInt(this.jobProps.getProperty("curX"));
-            int cminX = Integer.parseInt(this.jobProps.getProperty("cminX"));
-            int cminZ = Integer.parseInt(this.jobProps.getProperty("cminZ"));
-            int cmaxZ = Integer.parseInt(this.jobProps.getProperty("cmaxZ"));
-
-            int newCurX = curX - STEP_OVERLAP_COLUMNS;
-            if (newCurX < cminX) {
-                newCurX = cminX;
+        if (args.length < 2) {
+            sender.sendMessage("§a[BlockyBorder] Registro de chunks alterados: offsets " + log.getFirstOffset() + " a " + log.getNextOffset()
+                + " em " + log.getDir().getPath() + ". Use /fill changes <offset> para contar o que mudou desde um offset.");
+            return true;
+        }
+        final long from;
+        try {
+            from = Long.parseLong(args[1]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§c[BlockyBorder] Offset inválido: " + args[1]);
+            return true;
+        }
+        getServer().getScheduler().scheduleAsyncDelayedTask(this, new Runnable() {
+            public void run() {
+                final Map<String, Set<Long>> chunks = new TreeMap<>();
+                final long[] entries = new long[1];
+                String error = null;
+                long next = from;
+                try {
+                    next = ChunkChangelog.read(log.getDir(), from, new ChunkChangelog.Visitor() {
+                        public void change(long offset, long timeMillis, String world, int chunkX, int chunkZ, byte source) {
+                            Set<Long> set = chunks.get(world);
+                            if (set == null) chunks.put(world, set = new HashSet<>());
+                            set.add(ChunkUnloader.key(chunkX, chunkZ));
+                            entries[0]++;
+                        }
+                    });
+                } catch (IOException e) {
+                    error = e.getMessage();
+                }
+                final List<String> lines = new ArrayList<>();
+                if (error != null) {
+                    lines.add("§c[BlockyBorder] Falha ao ler o registro de chunks alterados: " + error);
+                } else {
+                    lines.add("§a[BlockyBorder] Desde o offset " + from + ": " + entries[0] + " entradas, próximo offset " + next + ".");
+                    for (Map.Entry<String, Set<Long>> e : chunks.entrySet())
+                        lines.add("§a  '" + e.getKey() + "': " + e.getValue().size() + " chunks distintos.");
+                }
+                getServer().getScheduler().scheduleSyncDelayedTask(BlockyBorder.this, new Runnable() {
+                    public void run() {
+                        for (String line : lines) sender.sendMessage(line);
+                    }
+                });
             }
+        });
+        return true;
+    }
 
-            int colsRewound = curX - newCurX;
-            int chunksInColumn = (cmaxZ - cminZ + 1);
-            int chunksToSubtract = colsRewound * chunksInColumn;
+    private static String formatDuration(long seconds) {
+        return String.format("%dh%02dm%02ds", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
 
-            int done = Integer.parseInt(this.jobProps.getProperty("done"));
-            int newDone = done - chunksToSubtract;
-            if (newDone < 0) {
-                newDone = 0;
+    private boolean borderCommand(CommandSender sender, String[] args) {
+        if (args.length >= 1 && args[0].equalsIgnoreCase("record")) {
+            boolean stop = args.length >= 2 && args[1].equalsIgnoreCase("stop");
+            MoveRecorder current = this.playerListener.getRecorder();
+            if (stop) {
+                if (current == null) {
+                    sender.sendMessage("§c[BlockyBorder] Nenhuma gravação de movimentos em andamento.");
+                    return true;
+                }
+                stopRecording();
+                sender.sendMessage("§a[BlockyBorder] Gravação encerrada: " + current.getMoves() + " movimentos em " + current.getFile().getPath() + ".");
+            } else if (current != null) {
+                sender.sendMessage("§a[BlockyBorder] Gravando em " + current.getFile().getPath() + ": " + current.getMoves() + " movimentos até agora.");
+            } else if (startRecording()) {
+                sender.sendMessage("§a[BlockyBorder] Gravando os movimentos em " + this.playerListener.getRecorder().getFile().getPath()
+                    + ". Use /border record stop para encerrar.");
+            } else {
+                sender.sendMessage("§c[BlockyBorder] Não foi possível começar a gravação; veja o console.");
             }
+            return true;
+        }
+        if (args.length >= 1 && args[0].equalsIgnoreCase("index")) {
+            String worldName = args.length >= 2 ? args[1]
+                : sender instanceof Player ? ((Player)sender).getWorld().getName() : getServer().getWorlds().get(0).getName();
+            WorldBorder border = borderFor(worldName);
+            if (border == null) {
+                sender.sendMessage("§c[BlockyBorder] O mundo '" + worldName + "' não tem borda configurada.");
+                return true;
+            }
+            return buildEdgeIndex(sender, border);
+        }
+        for (WorldBorder border : this.borders) {
+            BorderBounds b = border.bounds;
+            sender.sendMessage("§a[BlockyBorder] Borda de '" + border.world + "': (" + b.minX + "," + b.minZ + ") a (" + b.maxX + "," + b.maxZ + "), "
+                + (b.enabled ? (b.loop ? "wrap-around" : "barreira") : "desativada") + ".");
+            if (b.shape != null)
+                sender.sendMessage("§a  Formato: " + b.shape + " (" + b.grid.count(ShapeGrid.INSIDE) + " chunks por dentro, "
+                    + b.grid.count(ShapeGrid.EDGE) + " no contorno).");
+            if (border.prewarmer != null)
+                sender.sendMessage("§a  Pré-carregamento: " + border.prewarmer.getTracked() + " chunks acompanhados, " + border.prewarmer.getQueued()
+                    + " na fila, " + border.prewarmer.getLoadedCount() + " carregados, " + border.prewarmer.getDroppedCount() + " descartados (fila cheia).");
+            if (border.edgeIndex != null)
+                sender.sendMessage("§a  Índice de alturas: " + border.edgeIndex.getKnown() + " de " + border.edgeIndex.getColumns() + " colunas"
+                    + (border.edgeIndexBuilder != null ? " (construindo: " + border.edgeIndexBuilder.getProcessed() + "/" + border.edgeIndexBuilder.getTotal() + " chunks)." : "."));
+        }
+        sender.sendMessage(String.format("§aChecagens: %.0f/s (%d no total). Teleportes: %.2f/s (%d no total).",
+            this.playerListener.getChecks().perSecond(), this.playerListener.getChecks().total(),
+            this.playerListener.getTeleports().perSecond(), this.playerListener.getTeleports().total()));
+        return true;
+    }
 
-            LOG.info("[BlockyBorder] ShutdownTask: Rebobinando " + colsRewound + " colunas (" + chunksToSubtract + " chunks).");
-            LOG.info("[BlockyBorder] ShutdownTask: Ajustando 'done' de " + done + " para " + newDone + ".");
-            LOG.info("[BlockyBorder] ShutdownTask: Próximo step começará em X=" + newCurX + " Z=" + cminZ);
-
-            this.jobProps.setProperty("currentStep", String.valueOf(this.nextStep));
-            this.jobProps.setProperty("thisStep", "0");
-            this.jobProps.setProperty("curX", String.valueOf(newCurX)); 
-            this.jobProps.setProperty("curZ", String.valueOf(cminZ));
-            this.jobProps.setProperty("done", String.valueOf(newDone)); 
+    /** Começa a gravar os movimentos num arquivo novo em traces/. */
+    private boolean startRecording() {
+        File file = new File(new File(getDataFolder(), "traces"),
+            "moves-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".trace");
+        MoveRecorder recorder;
+        try {
+            recorder = new MoveRecorder(file);
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao criar o trace de movimentos: " + e.getMessage());
+            return false;
+        }
+        this.recorderTaskId = getServer().getScheduler().scheduleAsyncRepeatingTask(this, recorder, TRACE_FLUSH_TICKS, TRACE_FLUSH_TICKS);
+        this.playerListener.setRecorder(recorder);
+        LOG.info("[BlockyBorder] Gravando os movimentos dos jogadores em " + file.getPath() + ".");
+        return true;
+    }
 
-            // --- FIM DA LÓGICA DE SOBREPOSIÇÃO ---
+    private void stopRecording() {
+        MoveRecorder recorder = this.playerListener != null ? this.playerListener.getRecorder() : null;
+        if (recorder == null) return;
+        this.playerListener.setRecorder(null);
+        getServer().getScheduler().cancelTask(this.recorderTaskId);
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao gravar o trace de movimentos: " + e.getMessage());
+        }
+        LOG.info("[BlockyBorder] Gravação de movimentos encerrada: " + recorder.getMoves() + " movimentos.");
+    }
 
-            LOG.info("[BlockyBorder] ShutdownTask: Forçando salvamento de todos os mundos e jogadores...");
-            Bukkit.getServer().savePlayers();
-            for (World w : Bukkit.getServer().getWorlds()) {
-                w.save();
-            }
-            
-            this.plugin.saveFillJob(this.jobProps);
-            LOG.info("[BlockyBorder] ShutdownTask: Salvamento completo. Desligando em 5 segundos...");
-
-            this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin, new Runnable() {
-                public void run() {
-                    LOG.info("[BlockyBorder] ShutdownTask: Desligando agora.");
-                    Bukkit.getServer().shutdown();
-                }
-            }, SHUTDOWN_FINAL_DELAY_TICKS);
+    private boolean buildEdgeIndex(final CommandSender sender, final WorldBorder border) {
+        if (border.edgeIndex == null) {
+            sender.sendMessage("§c[BlockyBorder] O índice de alturas só existe no modo loop, com borda retangular (e com edge-index=true).");
+            return true;
+        }
+        if (border.edgeIndexBuilder != null) {
+            sender.sendMessage("§c[BlockyBorder] O índice de alturas de '" + border.world + "' já está sendo construído.");
+            return true;
         }
+        World world = getServer().getWorld(border.world);
+        border.edgeIndexBuilder = new EdgeIndexBuilder(world, border.edgeIndex, border.bounds, EDGE_INDEX_CHUNKS_PER_TICK,
+            new EdgeIndexBuilder.Done() {
+                public void finished(EdgeIndexBuilder builder) {
+                    border.edgeIndexBuilder = null;
+                    saveEdgeIndex(border);
+                    sender.sendMessage("§a[BlockyBorder] Índice de alturas de '" + border.world + "' pronto: " + border.edgeIndex.getKnown() + " de "
+                        + border.edgeIndex.getColumns() + " colunas.");
+                }
+            });
+        int taskId = getServer().getScheduler().scheduleSyncRepeatingTask(this, border.edgeIndexBuilder, 1L, 1L);
+        border.edgeIndexBuilder.setTaskId(taskId);
+        sender.sendMessage("§a[BlockyBorder] Construindo o índice de alturas da borda de '" + border.world + "' (" + border.edgeIndexBuilder.getTotal() + " chunks)...");
+        return true;
     }
-}
\ No newline at end of file
+}
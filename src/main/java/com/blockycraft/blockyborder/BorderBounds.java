@@ -0,0 +1,118 @@
+package com.blockycraft.blockyborder;
+
+import org.bukkit.Location;
+
+/**
+ * Retrato imutável da borda, lido pelo listener de movimento sem sincronização
+ * (publicado por um campo volatile). Além dos limites, guarda um retângulo
+ * interno, {@code margin} blocos para dentro (no mínimo {@link #SAFE_MARGIN}),
+ * onde nenhum movimento precisa de mais do que quatro comparações. A faixa
+ * entre os dois é onde o pré-carregamento do wrap acompanha os jogadores.
+ *
+ * Com um {@link BorderShape} (polígono ou elipse), os limites são o retângulo
+ * envolvente do formato e as mesmas perguntas são respondidas pelo
+ * {@link ShapeGrid}; o wrap continua nos eixos X e Z, saindo de um lado do
+ * formato e entrando pelo lado oposto na mesma linha.
+ */
+final class BorderBounds {
+    static final double SAFE_MARGIN = 16.0D;
+
+    final boolean enabled, loop;
+    final double minX, maxX, minZ, maxZ, buffer;
+    final double innerMinX, innerMaxX, innerMinZ, innerMaxZ;
+    final BorderShape shape; // null: o retângulo
+    final ShapeGrid grid;
+
+    BorderBounds(boolean enabled, boolean loop, double minX, double maxX, double minZ, double maxZ, double buffer) {
+        this(enabled, loop, minX, maxX, minZ, maxZ, buffer, SAFE_MARGIN);
+    }
+
+    BorderBounds(boolean enabled, boolean loop, double minX, double maxX, double minZ, double maxZ, double buffer, double margin) {
+        this(enabled, loop, minX, maxX, minZ, maxZ, buffer, margin, null);
+    }
+
+    BorderBounds(boolean enabled, boolean loop, BorderShape shape, double buffer, double margin) {
+        this(enabled, loop, shape.minX, shape.maxX, shape.minZ, shape.maxZ, buffer, margin, shape);
+    }
+
+    private BorderBounds(boolean enabled, boolean loop, double minX, double maxX, double minZ, double maxZ, double buffer,
+                         double margin, BorderShape shape) {
+        this.enabled = enabled;
+        this.loop = loop;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+        this.buffer = buffer;
+        // Numa borda menor que duas margens o retângulo interno fica vazio.
+        margin = Math.max(SAFE_MARGIN, margin);
+        this.innerMinX = minX + margin;
+        this.innerMaxX = maxX - margin;
+        this.innerMinZ = minZ + margin;
+        this.innerMaxZ = maxZ - margin;
+        this.shape = shape;
+        this.grid = shape != null ? new ShapeGrid(shape, margin) : null;
+    }
+
+    boolean isWellInside(double x, double z) {
+        if (this.grid != null) return this.grid.isInside(x, z);
+        return x > this.innerMinX && x < this.innerMaxX && z > this.innerMinZ && z < this.innerMaxZ;
+    }
+
+    boolean contains(double x, double z) {
+        if (this.grid != null) return this.grid.contains(x, z);
+        return x >= this.minX && x <= this.maxX && z >= this.minZ && z <= this.maxZ;
+    }
+
+    /**
+     * Destino do wrap-around para quem saiu da borda em {@code to}. Com um
+     * formato, pode ser null quando não há lado oposto naquela linha (a linha
+     * passa fora do formato); aí o jogador é só devolvido, como na barreira.
+     */
+    Location wrap(Location to) {
+        if (this.shape != null) return wrapShape(to);
+        Location dest = to.clone();
+        double x = to.getX(), z = to.getZ();
+        if (x < this.minX) dest.setX(this.maxX - this.buffer);
+        else if (x > this.maxX) dest.setX(this.minX + this.buffer);
+        if (z < this.minZ) dest.setZ(this.maxZ - this.buffer);
+        else if (z > this.maxZ) dest.setZ(this.minZ + this.buffer);
+        return dest;
+    }
+
+    /**
+     * Wrap pelo eixo em que o jogador está mais para fora (relativo ao
+     * retângulo envolvente): na mesma linha, vai para o trecho do formato na
+     * ponta oposta, {@code buffer} blocos para dentro.
+     */
+    private Location wrapShape(Location to) {
+        double x = to.getX(), z = to.getZ();
+        double nx = (x - (this.minX + this.maxX) / 2) / Math.max(1.0D, this.maxX - this.minX);
+        double nz = (z - (this.minZ + this.maxZ) / 2) / Math.max(1.0D, this.maxZ - this.minZ);
+        boolean alongX = Math.abs(nx) >= Math.abs(nz);
+        double[] cross = this.shape.crossings(alongX, alongX ? z : x);
+        if (cross.length < 2) {
+            alongX = !alongX; // tenta o outro eixo, para quem saiu por um canto
+            cross = this.shape.crossings(alongX, alongX ? z : x);
+            if (cross.length < 2) return null;
+        }
+        boolean towardMax = (alongX ? nx : nz) < 0;
+        int n = cross.length;
+        // Trecho da ponta oposta; se for estreito demais para o buffer, o meio dele.
+        double lo = towardMax ? cross[n - 2] : cross[0], hi = towardMax ? cross[n - 1] : cross[1];
+        double d = hi - lo > 2 * this.buffer ? (towardMax ? hi - this.buffer : lo + this.buffer) : (lo + hi) / 2;
+        Location dest = to.clone();
+        if (alongX) dest.setX(d);
+        else dest.setZ(d);
+        return dest;
+    }
+
+    /** Posição de volta para dentro da borda (modo barreira). */
+    Location clamp(Location from) {
+        Location dest = from.clone();
+        if (this.shape != null) return dest; // o from já era dentro do formato
+        dest.setX(Math.max(this.minX, Math.min(this.maxX, from.getX())));
+        dest.setZ(Math.max(this.minZ, Math.min(this.maxZ, from.getZ())));
+        return dest;
+    }
+}
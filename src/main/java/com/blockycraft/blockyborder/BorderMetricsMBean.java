@@ -0,0 +1,18 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Métricas da checagem de borda expostas por JMX em
+ * {@code com.blockycraft.blockyborder:type=Border}, do último intervalo de
+ * métricas.
+ */
+public interface BorderMetricsMBean {
+    double getChecksPerSecond();
+
+    long getCheckCostP50Nanos();
+
+    long getCheckCostP99Nanos();
+
+    double getTeleportsPerMinute();
+
+    long getTeleportsTotal();
+}
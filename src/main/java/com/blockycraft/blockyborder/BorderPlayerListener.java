@@ -0,0 +1,117 @@
+package com.blockycraft.blockyborder;
+
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerListener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Checagem de borda no PlayerMoveEvent, o caminho mais quente do plugin.
+ *
+ * Acha a borda do mundo do jogador num array pequeno (um por mundo com borda,
+ * publicado por um campo volatile), sai cedo para quem está bem dentro dela e
+ * só consulta a carência pós-teleporte (guardada como "expira no tick
+ * N") de quem realmente passou do limite. Nada é alocado nem boxeado no caso
+ * comum. O custo da checagem é medido em uma a cada 64 chamadas.
+ */
+class BorderPlayerListener extends PlayerListener {
+    static final int IGNORE_TICKS = 3;
+    private static final int COST_SAMPLE_MASK = 63;
+
+    /** Faz o teleporte propriamente dito (altura segura, chunk de destino etc.). */
+    interface Teleporter {
+        void teleport(WorldBorder border, Player player, Location destination);
+    }
+
+    private volatile WorldBorder[] borders;
+    private final GraceTable grace = new GraceTable();
+    private final TickMonitor ticks;
+    private final Teleporter teleporter;
+    private final RateCounter checks = new RateCounter(), teleports = new RateCounter();
+    private final LatencyHistogram checkCost = new LatencyHistogram();
+    private volatile MoveRecorder recorder;
+    private int moves = 0;
+
+    BorderPlayerListener(WorldBorder[] borders, TickMonitor ticks, Teleporter teleporter) {
+        this.borders = borders;
+        this.ticks = ticks;
+        this.teleporter = teleporter;
+    }
+
+    public void setBorders(WorldBorder[] borders) { this.borders = borders; }
+
+    public WorldBorder[] getBorders() { return this.borders; }
+
+    /** Grava os movimentos (null desliga); ver {@link MoveRecorder}. */
+    public void setRecorder(MoveRecorder recorder) { this.recorder = recorder; }
+
+    public MoveRecorder getRecorder() { return this.recorder; }
+
+    /** Borda do mundo, ou null se o mundo não tiver borda. */
+    WorldBorder borderFor(World world) {
+        WorldBorder[] all = this.borders;
+        String name = world.getName();
+        for (int i = 0; i < all.length; i++)
+            if (all[i].world.equals(name)) return all[i];
+        return null;
+    }
+
+    public void onPlayerMove(PlayerMoveEvent event) {
+        MoveRecorder r = this.recorder;
+        if (r != null) r.record(event.getPlayer().getUniqueId(), this.ticks.getTick(), event.getFrom(), event.getTo());
+        if ((++this.moves & COST_SAMPLE_MASK) != 0) {
+            check(event);
+            return;
+        }
+        long start = System.nanoTime();
+        check(event);
+        this.checkCost.record(System.nanoTime() - start);
+    }
+
+    private void check(PlayerMoveEvent event) {
+        Location to = event.getTo();
+        WorldBorder border = borderFor(to.getWorld());
+        if (border == null) return;
+        BorderBounds b = border.bounds;
+        if (!b.enabled) return;
+        this.checks.mark();
+        double x = to.getX(), z = to.getZ();
+        if (b.isWellInside(x, z)) return;
+        long tick = this.ticks.getTick();
+        if (b.contains(x, z)) {
+            // Perto da borda: avisa o pré-carregamento do destino do wrap.
+            if (b.loop && border.prewarmer != null) border.prewarmer.observe(b, event.getFrom(), to, tick);
+            return;
+        }
+
+        Player player = event.getPlayer();
+        UUID id = player.getUniqueId();
+        if (this.grace.expiresAt(id) > tick) return;
+
+        Location destination = b.loop ? b.wrap(to) : null;
+        if (destination == null) destination = b.clamp(event.getFrom());
+        this.grace.put(id, tick + IGNORE_TICKS);
+        this.teleports.mark();
+        this.teleporter.teleport(border, player, destination);
+    }
+
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        this.grace.remove(event.getPlayer().getUniqueId());
+    }
+
+    /** Recalcula as taxas por segundo; chamado periodicamente na thread principal. */
+    public void rollRates(long nowNanos) {
+        this.checks.roll(nowNanos);
+        this.teleports.roll(nowNanos);
+    }
+
+    public RateCounter getChecks() { return this.checks; }
+
+    public RateCounter getTeleports() { return this.teleports; }
+
+    /** Custo amostrado do onPlayerMove, em ns; zerado a cada intervalo de métricas. */
+    public LatencyHistogram getCheckCost() { return this.checkCost; }
+}
@@ -0,0 +1,242 @@
+package com.blockycraft.blockyborder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato da borda quando ela não é o retângulo de x1/z1/x2/z2: um polígono
+ * (ex.: o contorno da costa do mapa) ou uma elipse/círculo. Imutável.
+ *
+ * Os testes exatos daqui são caros perto do retângulo; o caminho quente usa
+ * o {@link ShapeGrid}, que só chama {@link #contains} nos chunks por onde o
+ * contorno passa.
+ */
+abstract class BorderShape {
+    final double minX, maxX, minZ, maxZ; // retângulo envolvente
+
+    BorderShape(double minX, double maxX, double minZ, double maxZ) {
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+    }
+
+    abstract boolean contains(double x, double z);
+
+    /**
+     * Onde a reta {@code z = c} (ou {@code x = c}, se {@code alongX} for
+     * false) cruza o contorno, em ordem crescente. Os pares consecutivos são
+     * os trechos dentro do formato.
+     */
+    abstract double[] crossings(boolean alongX, double c);
+
+    /**
+     * Marca como borda no grid as células cujo retângulo, alargado
+     * {@code margin} blocos para cada lado, é cruzado pelo contorno.
+     */
+    abstract void markEdges(ShapeGrid grid, double margin);
+
+    /**
+     * Em quantos passos de (dx, dz) quem está em (x, z) alcança o contorno;
+     * {@link Double#MAX_VALUE} se nunca (parado, ou fora e se afastando).
+     */
+    abstract double exitTicks(double x, double z, double dx, double dz);
+
+    /**
+     * Lê {@code x1,z1;x2,z2;...} (pelo menos três vértices, em qualquer
+     * sentido; o último liga de volta ao primeiro).
+     */
+    static Polygon parsePolygon(String spec) {
+        String[] points = spec.split(";");
+        List<double[]> vertices = new ArrayList<>();
+        for (String point : points) {
+            if (point.trim().isEmpty()) continue;
+            String[] xz = point.split(",");
+            if (xz.length != 2) throw new IllegalArgumentException("vértice inválido '" + point.trim() + "' (use x,z)");
+            vertices.add(new double[] { parse(xz[0]), parse(xz[1]) });
+        }
+        if (vertices.size() < 3) throw new IllegalArgumentException("o polígono precisa de pelo menos 3 vértices");
+        double[] xs = new double[vertices.size()], zs = new double[vertices.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = vertices.get(i)[0];
+            zs[i] = vertices.get(i)[1];
+        }
+        return new Polygon(xs, zs);
+    }
+
+    /** Lê {@code centroX,centroZ,raioX[,raioZ]}; sem raioZ é um círculo. */
+    static Ellipse parseEllipse(String spec) {
+        String[] parts = spec.split(",");
+        if (parts.length != 3 && parts.length != 4)
+            throw new IllegalArgumentException("use centroX,centroZ,raioX[,raioZ]");
+        double rx = parse(parts[2]), rz = parts.length == 4 ? parse(parts[3]) : rx;
+        if (rx <= 0 || rz <= 0) throw new IllegalArgumentException("os raios precisam ser positivos");
+        return new Ellipse(parse(parts[0]), parse(parts[1]), rx, rz);
+    }
+
+    private static double parse(String s) {
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("número inválido '" + s.trim() + "'");
+        }
+    }
+
+    static final class Polygon extends BorderShape {
+        private final double[] xs, zs;
+
+        Polygon(double[] xs, double[] zs) {
+            super(min(xs), max(xs), min(zs), max(zs));
+            this.xs = xs;
+            this.zs = zs;
+        }
+
+        /** Regra par-ímpar: conta quantas arestas um raio para +X cruza. */
+        boolean contains(double x, double z) {
+            boolean inside = false;
+            for (int i = 0, j = this.xs.length - 1; i < this.xs.length; j = i++) {
+                if ((this.zs[i] > z) != (this.zs[j] > z)
+                        && x < this.xs[j] + (z - this.zs[j]) * (this.xs[i] - this.xs[j]) / (this.zs[i] - this.zs[j]))
+                    inside = !inside;
+            }
+            return inside;
+        }
+
+        double[] crossings(boolean alongX, double c) {
+            double[] a = alongX ? this.zs : this.xs, b = alongX ? this.xs : this.zs;
+            double[] out = new double[a.length];
+            int n = 0;
+            for (int i = 0, j = a.length - 1; i < a.length; j = i++)
+                if ((a[i] > c) != (a[j] > c)) // meio-aberto: um vértice na reta conta uma vez só
+                    out[n++] = b[j] + (c - a[j]) * (b[i] - b[j]) / (a[i] - a[j]);
+            out = Arrays.copyOf(out, n);
+            Arrays.sort(out);
+            return out;
+        }
+
+        /** Percorre só as células do retângulo de cada aresta, não o grid todo. */
+        void markEdges(ShapeGrid grid, double margin) {
+            for (int i = 0, j = this.xs.length - 1; i < this.xs.length; j = i++) {
+                double x0 = this.xs[j], z0 = this.zs[j], x1 = this.xs[i], z1 = this.zs[i];
+                int fromX = ShapeGrid.cell(Math.min(x0, x1) - margin), toX = ShapeGrid.cell(Math.max(x0, x1) + margin);
+                int fromZ = ShapeGrid.cell(Math.min(z0, z1) - margin), toZ = ShapeGrid.cell(Math.max(z0, z1) + margin);
+                for (int cz = fromZ; cz <= toZ; cz++)
+                    for (int cx = fromX; cx <= toX; cx++) {
+                        double rx0 = (cx << 4) - margin, rz0 = (cz << 4) - margin;
+                        if (segmentHitsRect(x0, z0, x1, z1, rx0, rz0, rx0 + 16 + 2 * margin, rz0 + 16 + 2 * margin))
+                            grid.markEdge(cx, cz);
+                    }
+            }
+        }
+
+        double exitTicks(double x, double z, double dx, double dz) {
+            double best = Double.MAX_VALUE;
+            for (int i = 0, j = this.xs.length - 1; i < this.xs.length; j = i++) {
+                double ex = this.xs[i] - this.xs[j], ez = this.zs[i] - this.zs[j];
+                double denom = dx * ez - dz * ex;
+                if (denom == 0) continue; // paralelo
+                double ax = this.xs[j] - x, az = this.zs[j] - z;
+                double t = (ax * ez - az * ex) / denom, s = (ax * dz - az * dx) / denom;
+                if (t >= 0 && s >= 0 && s <= 1) best = Math.min(best, t);
+            }
+            return best;
+        }
+
+        public String toString() { return "polígono de " + this.xs.length + " vértices"; }
+
+        /** Liang-Barsky: recorta o segmento no retângulo e vê se sobra algo. */
+        private static boolean segmentHitsRect(double x0, double z0, double x1, double z1,
+                                               double minX, double minZ, double maxX, double maxZ) {
+            double dx = x1 - x0, dz = z1 - z0, t0 = 0, t1 = 1;
+            double[] p = { -dx, dx, -dz, dz };
+            double[] q = { x0 - minX, maxX - x0, z0 - minZ, maxZ - z0 };
+            for (int k = 0; k < 4; k++) {
+                if (p[k] == 0) {
+                    if (q[k] < 0) return false;
+                    continue;
+                }
+                double t = q[k] / p[k];
+                if (p[k] < 0) t0 = Math.max(t0, t);
+                else t1 = Math.min(t1, t);
+                if (t0 > t1) return false;
+            }
+            return true;
+        }
+
+        private static double min(double[] v) {
+            double m = v[0];
+            for (double d : v) m = Math.min(m, d);
+            return m;
+        }
+
+        private static double max(double[] v) {
+            double m = v[0];
+            for (double d : v) m = Math.max(m, d);
+            return m;
+        }
+    }
+
+    static final class Ellipse extends BorderShape {
+        private final double cx, cz, rx, rz;
+
+        Ellipse(double cx, double cz, double rx, double rz) {
+            super(cx - rx, cx + rx, cz - rz, cz + rz);
+            this.cx = cx;
+            this.cz = cz;
+            this.rx = rx;
+            this.rz = rz;
+        }
+
+        boolean contains(double x, double z) {
+            return norm(x, z) <= 1.0D;
+        }
+
+        double[] crossings(boolean alongX, double c) {
+            double r = alongX ? this.rz : this.rx, o = alongX ? this.cz : this.cx;
+            double t = (c - o) / r;
+            if (t <= -1.0D || t >= 1.0D) return new double[0];
+            double half = Math.sqrt(1.0D - t * t) * (alongX ? this.rx : this.rz);
+            double mid = alongX ? this.cx : this.cz;
+            return new double[] { mid - half, mid + half };
+        }
+
+        /**
+         * A elipse é convexa, então o contorno cruza um retângulo se e só se o
+         * ponto do retângulo mais perto do centro está dentro e o mais longe
+         * está fora.
+         */
+        void markEdges(ShapeGrid grid, double margin) {
+            for (int cz = grid.minCZ; cz <= grid.maxCZ; cz++)
+                for (int cx = grid.minCX; cx <= grid.maxCX; cx++) {
+                    double x0 = (cx << 4) - margin, x1 = x0 + 16 + 2 * margin;
+                    double z0 = (cz << 4) - margin, z1 = z0 + 16 + 2 * margin;
+                    double nearX = Math.max(x0, Math.min(this.cx, x1)), nearZ = Math.max(z0, Math.min(this.cz, z1));
+                    double farX = Math.abs(x0 - this.cx) > Math.abs(x1 - this.cx) ? x0 : x1;
+                    double farZ = Math.abs(z0 - this.cz) > Math.abs(z1 - this.cz) ? z0 : z1;
+                    if (norm(nearX, nearZ) <= 1.0D && norm(farX, farZ) >= 1.0D)
+                        grid.markEdge(cx, cz);
+                }
+        }
+
+        double exitTicks(double x, double z, double dx, double dz) {
+            double px = (x - this.cx) / this.rx, pz = (z - this.cz) / this.rz;
+            double vx = dx / this.rx, vz = dz / this.rz;
+            double a = vx * vx + vz * vz, b = 2 * (px * vx + pz * vz), c = px * px + pz * pz - 1.0D;
+            double disc = b * b - 4 * a * c;
+            if (a == 0 || disc < 0) return Double.MAX_VALUE;
+            double t = (-b + Math.sqrt(disc)) / (2 * a); // a raiz maior é a saída
+            return t >= 0 ? t : Double.MAX_VALUE;
+        }
+
+        public String toString() {
+            return this.rx == this.rz ? "círculo de centro (" + this.cx + "," + this.cz + ") e raio " + this.rx
+                : "elipse de centro (" + this.cx + "," + this.cz + ") e raios " + this.rx + " x " + this.rz;
+        }
+
+        private double norm(double x, double z) {
+            double dx = (x - this.cx) / this.rx, dz = (z - this.cz) / this.rz;
+            return dx * dx + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.blockycraft.blockyborder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Grava o estado do /fill fora da thread principal.
+ *
+ * A thread principal só chama {@link #offer}, que guarda o retrato mais recente;
+ * {@link #run} (agendado como tarefa assíncrona repetida) grava no máximo um
+ * retrato por intervalo, descartando os intermediários. Cada gravação vai para
+ * um arquivo temporário com fsync e é trocada por rename atômico; o checkpoint
+ * anterior é mantido como .prev e usado na leitura se o mais novo estiver
+ * danificado. O formato é o de {@link FillJobState} seguido de um CRC32.
+ */
+class CheckpointWriter implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+
+    private final File file, prevFile, tmpFile;
+    private volatile FillJobState pending;
+    private volatile ChunkBitmap bitmap;
+    private FillJobState written;
+
+    CheckpointWriter(File file) {
+        this.file = file;
+        this.prevFile = new File(file.getPath() + ".prev");
+        this.tmpFile = new File(file.getPath() + ".tmp");
+    }
+
+    /** Mapa de bits do trabalho, sincronizado com o disco antes de cada checkpoint. */
+    public void setBitmap(ChunkBitmap bitmap) { this.bitmap = bitmap; }
+
+    /** Registra o retrato mais recente; barato, pode ser chamado a cada tick. */
+    public void offer(FillJobState state) { this.pending = state; }
+
+    public void run() {
+        try {
+            writePending();
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao gravar checkpoint do job: " + e.getMessage());
+        }
+    }
+
+    /** Grava o retrato pendente, se ele mudou desde a última gravação. */
+    public synchronized void writePending() throws IOException {
+        FillJobState state = this.pending;
+        if (state == null || state == this.written) return;
+        ChunkBitmap bits = this.bitmap;
+        if (bits != null) bits.flush(); // o checkpoint nunca fica à frente do mapa de bits
+
+        try (FileChannel ch = FileChannel.open(this.tmpFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = encode(state);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        if (this.file.exists())
+            Files.move(this.file.toPath(), this.prevFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(this.tmpFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        this.written = state;
+    }
+
+    /** Encerra o trabalho: nada mais é gravado e os checkpoints são apagados. */
+    public synchronized void clear() {
+        this.pending = null;
+        this.written = null;
+        this.bitmap = null;
+        this.file.delete();
+        this.prevFile.delete();
+        this.tmpFile.delete();
+    }
+
+    public boolean exists() { return this.file.exists() || this.prevFile.exists(); }
+
+    /** Lê o checkpoint mais novo que estiver íntegro, ou null se nenhum estiver. */
+    public FillJobState load() {
+        for (File f : new File[] { this.file, this.prevFile }) {
+            if (!f.exists()) continue;
+            try {
+                return read(f);
+            } catch (IOException e) {
+                LOG.warning("[BlockyBorder] Checkpoint " + f.getName() + " danificado (" + e.getMessage() + "), tentando o anterior...");
+            }
+        }
+        return null;
+    }
+
+    private static FillJobState read(File f) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(f.toPath())));
+    }
+
+    /** Conteúdo do arquivo de checkpoint: o estado seguido do CRC32 dele. */
+    static ByteBuffer encode(FillJobState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        state.writeTo(out);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /** Lê o que {@link #encode} gravou; IOException se estiver curto ou o CRC não conferir. */
+    static FillJobState decode(ByteBuffer data) throws IOException {
+        byte[] bytes;
+        int offset, length = data.remaining();
+        if (data.hasArray()) {
+            bytes = data.array();
+            offset = data.arrayOffset() + data.position();
+        } else {
+            bytes = new byte[length];
+            data.duplicate().get(bytes);
+            offset = 0;
+        }
+        if (length < 8) throw new EOFException("arquivo curto");
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length - 8);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, offset + length - 8, 8).getLong())
+            throw new IOException("CRC não confere");
+        return FillJobState.readFrom(new DataInputStream(new ByteArrayInputStream(bytes, offset, length - 8)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mapa de bits persistente com um bit por chunk da área do trabalho
+ * (minX..maxX x minZ..maxZ), marcando os chunks já gerados e salvos nos
+ * arquivos de região (o {@link FillStepTask} só marca depois de salvar).
+ *
+ * O arquivo tem tamanho fixo (cabeçalho de 32 bytes + 1 bit por chunk) e fica
+ * mapeado em memória: cada bit marcado já está no page cache do sistema, então
+ * sobrevive a um crash do servidor. Uma área de 700x340 chunks ocupa ~30 KB.
+ */
+class ChunkBitmap {
+    private static final int MAGIC = 0x4242434D; // "BBCM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final int minX, maxX, minZ, maxZ, width, height;
+    private final MappedByteBuffer bits;
+    private int count;
+
+    private ChunkBitmap(MappedByteBuffer bits, int minX, int maxX, int minZ, int maxZ) {
+        this.bits = bits;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+        this.width = maxX - minX + 1;
+        this.height = maxZ - minZ + 1;
+    }
+
+    /**
+     * Abre o mapa do arquivo, criando-o se não existir. Se o arquivo existente
+     * for de outra área, os bits da interseção são aproveitados, para que um
+     * novo /fill (por exemplo com outro pad) pule o que já foi gerado.
+     *
+     * O arquivo novo é montado na memória, gravado num .tmp e trocado por
+     * rename atômico antes de ser mapeado: nenhum mapeamento do arquivo antigo
+     * fica vivo durante a troca (no Windows ela falharia).
+     */
+    static ChunkBitmap open(File file, int minX, int maxX, int minZ, int maxZ) throws IOException {
+        // O arquivo antigo só é lido; mapeado, só se for ele mesmo o mapa pedido.
+        ByteBuffer old = file.exists() ? ByteBuffer.wrap(Files.readAllBytes(file.toPath())) : null;
+        if (old != null && !valid(old)) old = null;
+        if (old != null && old.getInt(8) == minX && old.getInt(12) == maxX
+                && old.getInt(16) == minZ && old.getInt(20) == maxZ) {
+            ChunkBitmap existing = map(file);
+            if (existing != null) return existing;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + (int)(((long)(maxX - minX + 1) * (maxZ - minZ + 1) + 7) / 8));
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, minX);
+        data.putInt(12, maxX);
+        data.putInt(16, minZ);
+        data.putInt(20, maxZ);
+        if (old != null) {
+            int oldMinX = old.getInt(8), oldMaxX = old.getInt(12), oldMinZ = old.getInt(16), oldMaxZ = old.getInt(20);
+            int oldHeight = oldMaxZ - oldMinZ + 1, height = maxZ - minZ + 1;
+            for (int x = Math.max(minX, oldMinX); x <= Math.min(maxX, oldMaxX); x++)
+                for (int z = Math.max(minZ, oldMinZ); z <= Math.min(maxZ, oldMaxZ); z++)
+                    if (bit(old, (x - oldMinX) * oldHeight + (z - oldMinZ)))
+                        setBit(data, (x - minX) * height + (z - minZ));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) ch.write(data);
+            ch.force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ChunkBitmap created = map(file);
+        if (created == null) throw new IOException("não foi possível reabrir " + file);
+        return created;
+    }
+
+    /** Cabeçalho e tamanho conferem com a área que o próprio cabeçalho descreve? */
+    private static boolean valid(ByteBuffer data) {
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) return false;
+        long cells = (long)(data.getInt(12) - data.getInt(8) + 1) * (data.getInt(20) - data.getInt(16) + 1);
+        return data.capacity() == HEADER_BYTES + (cells + 7) / 8;
+    }
+
+    private static boolean bit(ByteBuffer data, int i) {
+        return (data.get(HEADER_BYTES + (i >>> 3)) & (1 << (i & 7))) != 0;
+    }
+
+    private static void setBit(ByteBuffer data, int i) {
+        int pos = HEADER_BYTES + (i >>> 3);
+        data.put(pos, (byte)(data.get(pos) | (1 << (i & 7))));
+    }
+
+    /** Mapeia um arquivo existente, com a área do cabeçalho; null se ele for inválido. */
+    private static ChunkBitmap map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel ch = raf.getChannel()) {
+            if (raf.length() < HEADER_BYTES || raf.readInt() != MAGIC || raf.readInt() != VERSION) return null;
+            int minX = raf.readInt(), maxX = raf.readInt(), minZ = raf.readInt(), maxZ = raf.readInt();
+            long size = HEADER_BYTES + ((long)(maxX - minX + 1) * (maxZ - minZ + 1) + 7) / 8;
+            if (raf.length() != size) return null;
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            ChunkBitmap bitmap = new ChunkBitmap(buf, minX, maxX, minZ, maxZ);
+            bitmap.count = bitmap.popcount();
+            return bitmap;
+        }
+    }
+
+    private int popcount() {
+        int n = 0;
+        for (int i = HEADER_BYTES; i < this.bits.capacity(); i++)
+            n += Integer.bitCount(this.bits.get(i) & 0xFF);
+        return n;
+    }
+
+    public boolean contains(int chunkX, int chunkZ) {
+        return chunkX >= this.minX && chunkX <= this.maxX && chunkZ >= this.minZ && chunkZ <= this.maxZ;
+    }
+
+    private int index(int chunkX, int chunkZ) {
+        return (chunkX - this.minX) * this.height + (chunkZ - this.minZ);
+    }
+
+    public boolean get(int chunkX, int chunkZ) {
+        int i = index(chunkX, chunkZ);
+        return (this.bits.get(HEADER_BYTES + (i >>> 3)) & (1 << (i & 7))) != 0;
+    }
+
+    /** Marca o chunk; devolve false se ele já estava marcado. */
+    public boolean set(int chunkX, int chunkZ) {
+        int i = index(chunkX, chunkZ), pos = HEADER_BYTES + (i >>> 3);
+        byte b = this.bits.get(pos);
+        byte mask = (byte)(1 << (i & 7));
+        if ((b & mask) != 0) return false;
+        this.bits.put(pos, (byte)(b | mask));
+        this.count++;
+        return true;
+    }
+
+    /** Número exato de chunks marcados. */
+    public int count() { return this.count; }
+
+    /** Chunks marcados que o formato cobre (todos, se {@code shape} for null). */
+    public int count(ShapeGrid shape) {
+        if (shape == null) return this.count;
+        int n = 0;
+        for (int x = this.minX; x <= this.maxX; x++)
+            for (int z = this.minZ; z <= this.maxZ; z++)
+                if (shape.covers(x, z) && get(x, z)) n++;
+        return n;
+    }
+
+    public int size() { return this.width * this.height; }
+
+    /** Força a gravação das páginas alteradas no disco. */
+    public void flush() { this.bits.force(); }
+}
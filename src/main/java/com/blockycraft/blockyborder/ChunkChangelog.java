@@ -0,0 +1,282 @@
+package com.blockycraft.blockyborder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Registro só de acréscimo dos chunks que o plugin gerou ou populou, para um
+ * renderizador (Dynmap etc.) redesenhar só o terreno novo em vez de tudo.
+ *
+ * Cada entrada tem {@link #RECORD} bytes: instante (ms), id do mundo, origem
+ * ({@link #FILL} ou {@link #WRAP}) e as coordenadas do chunk. O offset de uma
+ * entrada é a sua posição desde o começo do registro; quem lê guarda o
+ * próximo offset e volta depois pedindo "o que mudou desde X". As entradas
+ * ficam em segmentos {@code <primeiro offset>.log} de tamanho fixo; o mais
+ * antigo é apagado quando há segmentos demais. Os nomes dos mundos ficam em
+ * {@code worlds.txt}, uma linha por id.
+ *
+ * A thread principal só chama {@link #record}, que escreve num buffer (a
+ * trava do buffer nunca é segurada durante I/O); {@link #run} (tarefa
+ * assíncrona) troca o buffer e grava no disco.
+ */
+class ChunkChangelog implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    static final int RECORD = 20;
+    static final byte FILL = 1, WRAP = 2;
+    private static final String SUFFIX = ".log";
+
+    /** Recebe as entradas lidas, em ordem de offset. */
+    interface Visitor {
+        void change(long offset, long timeMillis, String world, int chunkX, int chunkZ, byte source);
+    }
+
+    private final File dir, worldsFile;
+    private final int segmentRecords, maxSegments;
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private final List<String> worlds = new ArrayList<>();
+    private final Object lock = new Object(); // buffer e mundos
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(RECORD * 256);
+    private DataOutputStream out = new DataOutputStream(this.buffer);
+    private int buffered = 0, worldsWritten = 0;
+    private volatile long firstOffset = 0, nextOffset = 0; // nextOffset: o que já está em disco
+    private long segmentStart = 0;
+
+    ChunkChangelog(File dir, int segmentRecords, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.worldsFile = new File(dir, "worlds.txt");
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        dir.mkdirs();
+        for (String name : readWorlds(dir)) {
+            this.worldIds.put(name, this.worlds.size());
+            this.worlds.add(name);
+        }
+        this.worldsWritten = this.worlds.size();
+        long[] segments = segments(dir);
+        if (segments.length > 0) {
+            this.firstOffset = segments[0];
+            this.segmentStart = segments[segments.length - 1];
+            // Uma entrada cortada no meio por uma queda é descartada.
+            try (RandomAccessFile raf = new RandomAccessFile(segmentFile(dir, this.segmentStart), "rw")) {
+                long records = raf.length() / RECORD;
+                raf.setLength(records * RECORD);
+                this.nextOffset = this.segmentStart + records;
+            }
+        }
+    }
+
+    /** Anota um chunk gerado ou populado. Só na thread principal; não toca o disco. */
+    public void record(String world, int chunkX, int chunkZ, byte source) {
+        synchronized (this.lock) {
+            append(world, chunkX, chunkZ, source);
+        }
+    }
+
+    private void append(String world, int chunkX, int chunkZ, byte source) {
+        Integer id = this.worldIds.get(world);
+        if (id == null) {
+            id = this.worlds.size();
+            this.worldIds.put(world, id);
+            this.worlds.add(world);
+        }
+        try {
+            this.out.writeLong(System.currentTimeMillis());
+            this.out.writeShort(id);
+            this.out.writeByte(source);
+            this.out.writeByte(0);
+            this.out.writeInt(chunkX);
+            this.out.writeInt(chunkZ);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream não falha
+        }
+        this.buffered++;
+    }
+
+    public void run() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao gravar o registro de chunks alterados: " + e.getMessage());
+        }
+    }
+
+    /** Grava o que está no buffer, trocando de segmento quando o atual enche. */
+    public synchronized void flush() throws IOException {
+        byte[] bytes;
+        String[] names = null;
+        synchronized (this.lock) {
+            if (this.buffered == 0) return;
+            bytes = this.buffer.toByteArray();
+            this.buffer = new ByteArrayOutputStream(RECORD * 256);
+            this.out = new DataOutputStream(this.buffer);
+            this.buffered = 0;
+            if (this.worlds.size() > this.worldsWritten) names = this.worlds.toArray(new String[0]);
+        }
+        if (names != null) writeWorlds(names); // antes das entradas que usam os ids novos
+
+        int pos = 0;
+        while (pos < bytes.length) {
+            long inSegment = this.nextOffset - this.segmentStart;
+            if (inSegment >= this.segmentRecords) {
+                this.segmentStart = this.nextOffset;
+                inSegment = 0;
+                pruneSegments();
+            }
+            int n = (int)Math.min((bytes.length - pos) / RECORD, this.segmentRecords - inSegment);
+            try (FileOutputStream f = new FileOutputStream(segmentFile(this.dir, this.segmentStart), true)) {
+                f.write(bytes, pos, n * RECORD);
+            }
+            pos += n * RECORD;
+            this.nextOffset += n;
+        }
+    }
+
+    private void writeWorlds(String[] names) throws IOException {
+        File tmp = new File(this.dir, "worlds.txt.tmp");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (String name : names) w.write(name + "\n");
+        }
+        Files.move(tmp.toPath(), this.worldsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this.lock) {
+            this.worldsWritten = names.length;
+        }
+    }
+
+    /** Apaga os segmentos mais antigos além de maxSegments (contando o que vai começar). */
+    private void pruneSegments() {
+        long[] segments = segments(this.dir);
+        int excess = segments.length + 1 - this.maxSegments;
+        for (int i = 0; i < excess && i < segments.length; i++)
+            if (!segmentFile(this.dir, segments[i]).delete())
+                LOG.warning("[BlockyBorder] Não foi possível apagar o segmento antigo " + segments[i] + SUFFIX + " do registro de chunks.");
+        if (excess > 0)
+            this.firstOffset = excess < segments.length ? segments[excess] : this.segmentStart;
+    }
+
+    /** Offset mais antigo ainda disponível; pedidos anteriores começam daqui. */
+    public long getFirstOffset() { return this.firstOffset; }
+
+    /** Offset da próxima entrada gravada. */
+    public long getNextOffset() { return this.nextOffset; }
+
+    public File getDir() { return this.dir; }
+
+    /**
+     * Lê as entradas a partir de {@code fromOffset} (ou da mais antiga ainda
+     * guardada, se ela for posterior) e devolve o offset para a próxima
+     * leitura. Não depende do servidor: serve para ferramentas externas, em
+     * qualquer thread, mesmo com o plugin gravando.
+     */
+    static long read(File dir, long fromOffset, Visitor visitor) throws IOException {
+        List<String> names = readWorlds(dir);
+        long[] segments = segments(dir);
+        long offset = segments.length > 0 ? Math.max(fromOffset, segments[0]) : fromOffset;
+        for (int i = 0; i < segments.length; i++) {
+            long end = i + 1 < segments.length ? segments[i + 1] : Long.MAX_VALUE;
+            if (offset >= end) continue;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile(dir, segments[i]))))) {
+                long skip = (offset - segments[i]) * RECORD;
+                while (skip > 0) {
+                    long n = in.skip(skip);
+                    if (n <= 0) break;
+                    skip -= n;
+                }
+                byte[] rec = new byte[RECORD];
+                ByteBuffer r = ByteBuffer.wrap(rec);
+                while (true) {
+                    try {
+                        in.readFully(rec);
+                    } catch (EOFException e) {
+                        break; // fim, ou entrada ainda sendo escrita
+                    }
+                    long time = r.getLong(0);
+                    int world = r.getShort(8) & 0xFFFF;
+                    byte source = r.get(10);
+                    int x = r.getInt(12), z = r.getInt(16);
+                    visitor.change(offset++, time, world < names.size() ? names.get(world) : "#" + world, x, z, source);
+                }
+            }
+        }
+        return offset;
+    }
+
+    private static List<String> readWorlds(File dir) throws IOException {
+        List<String> names = new ArrayList<>();
+        File f = new File(dir, "worlds.txt");
+        if (!f.exists()) return names;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null; )
+                if (!line.isEmpty()) names.add(line);
+        }
+        return names;
+    }
+
+    /** Offsets iniciais dos segmentos, em ordem. */
+    private static long[] segments(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) return new long[0];
+        long[] starts = new long[files.length];
+        int n = 0;
+        for (File f : files) {
+            String name = f.getName();
+            if (!name.endsWith(SUFFIX)) continue;
+            try {
+                starts[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                // outro arquivo qualquer na pasta
+            }
+        }
+        starts = Arrays.copyOf(starts, n);
+        Arrays.sort(starts);
+        return starts;
+    }
+
+    private static File segmentFile(File dir, long start) {
+        return new File(dir, String.format("%020d", start) + SUFFIX);
+    }
+
+    /**
+     * Uso: {@code java -cp BlockyBorder.jar com.blockycraft.blockyborder.ChunkChangelog <pasta> [offset]}.
+     * Imprime uma linha CSV por entrada (offset,ms,mundo,chunkX,chunkZ,origem)
+     * e, na saída de erro, o offset para a próxima chamada.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("uso: ChunkChangelog <pasta do registro> [offset]");
+            System.exit(2);
+        }
+        final StringBuilder line = new StringBuilder();
+        long next = read(new File(args[0]), args.length > 1 ? Long.parseLong(args[1]) : 0L, new Visitor() {
+            public void change(long offset, long timeMillis, String world, int chunkX, int chunkZ, byte source) {
+                line.setLength(0);
+                line.append(offset).append(',').append(timeMillis).append(',').append(world).append(',')
+                    .append(chunkX).append(',').append(chunkZ).append(',').append(source == WRAP ? "wrap" : "fill");
+                System.out.println(line);
+            }
+        });
+        System.out.flush();
+        System.err.println("next=" + next);
+    }
+}
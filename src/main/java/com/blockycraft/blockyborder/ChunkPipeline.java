@@ -0,0 +1,138 @@
+package com.blockycraft.blockyborder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.bukkit.World;
+import org.bukkit.generator.ChunkGenerator;
+
+/**
+ * Primeiro estágio do /fill em pipeline: threads de trabalho calculam o
+ * terreno bruto (o byte[] do {@link ChunkGenerator} do mundo) dos próximos
+ * chunks da ordem de visita, enquanto a thread principal só instala os
+ * arrays prontos e roda os populators.
+ *
+ * Um segundo {@link FillTraversal}, igual ao do trabalho, anda à frente
+ * ({@link #topUp}) pulando o que o mapa de bits já marca, e mantém no máximo
+ * {@code depth} chunks encomendados; isso limita a memória a depth arrays de
+ * 32 KB. Quando o servidor pede o terreno de um chunk, o
+ * {@link PrefetchingGenerator} instalado no mundo entrega o array pronto
+ * ({@link #take}). O Random de cada chunk é semeado como no CraftBukkit, e o
+ * gerador é uma função da semente e das coordenadas, então o terreno é o
+ * mesmo da geração serial. Exige um gerador thread-safe.
+ */
+class ChunkPipeline {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+
+    private final World world;
+    private final ChunkGenerator generator;
+    private final ChunkBitmap bitmap;
+    private final ShapeGrid shape;
+    private final FillTraversal scout;
+    private final int depth;
+    private final ExecutorService workers;
+    private final Map<Long, Future<byte[]>> ahead = new HashMap<>(); // só a thread principal mexe
+    private PrefetchingGenerator hook;
+    private long served = 0, missed = 0;
+
+    ChunkPipeline(World world, ChunkGenerator generator, FillJobState state, ChunkBitmap bitmap, ShapeGrid shape, int threads, int depth) {
+        this.world = world;
+        this.generator = generator;
+        this.bitmap = bitmap;
+        this.shape = shape;
+        this.depth = depth;
+        this.scout = state.order.create(state.minX, state.maxX, state.minZ, state.maxZ);
+        while (this.scout.position() < state.position && this.scout.hasNext())
+            this.scout.next();
+        final AtomicInteger n = new AtomicInteger();
+        final String name = "BlockyBorder-gen-" + world.getName() + "-";
+        this.workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + n.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1); // a thread principal tem prioridade
+                return t;
+            }
+        });
+    }
+
+    /** Põe o {@link PrefetchingGenerator} no mundo; false se não deu (o /fill segue serial). */
+    public boolean install() {
+        this.hook = PrefetchingGenerator.install(this);
+        if (this.hook == null) this.workers.shutdownNow();
+        return this.hook != null;
+    }
+
+    /** Encomenda chunks até ter {@code depth} à frente; só na thread principal. */
+    public void topUp() {
+        while (this.ahead.size() < this.depth && this.scout.hasNext()) {
+            long key = this.scout.next();
+            final int x = (int)(key >> 32), z = (int)key;
+            if (this.bitmap.get(x, z) || (this.shape != null && !this.shape.covers(x, z))) continue;
+            this.ahead.put(key, this.workers.submit(new Callable<byte[]>() {
+                public byte[] call() {
+                    // Mesma semente que o CustomChunkGenerator do CraftBukkit usa para o chunk.
+                    Random random = new Random(x * 341873128712L + z * 132897987541L);
+                    return ChunkPipeline.this.generator.generate(ChunkPipeline.this.world, random, x, z);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Terreno pronto (ou em cálculo) do chunk, ou null se ele não foi
+     * encomendado. Chamado pelo servidor, na thread principal.
+     */
+    public byte[] take(int chunkX, int chunkZ) {
+        Future<byte[]> f = this.ahead.remove(ChunkUnloader.key(chunkX, chunkZ));
+        if (f == null) return null;
+        try {
+            byte[] blocks = f.get(); // se ainda estiver calculando, esperar custa menos que recomeçar
+            this.served++;
+            return blocks;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.warning("[BlockyBorder] Falha ao gerar o chunk " + chunkX + "," + chunkZ + " em paralelo, gerando na thread principal: " + e.getCause());
+        }
+        this.missed++;
+        return null;
+    }
+
+    /**
+     * O trabalho já passou pelo chunk. Se o terreno não foi usado (o chunk já
+     * existia em disco, por exemplo), é descartado para não ocupar a fila.
+     */
+    public void discard(long key) {
+        Future<byte[]> f = this.ahead.remove(key);
+        if (f != null) f.cancel(false);
+    }
+
+    /** Devolve o gerador original ao mundo e para as threads. */
+    public void close() {
+        if (this.hook != null) {
+            this.hook.uninstall();
+            this.hook = null;
+        }
+        this.workers.shutdownNow();
+        this.ahead.clear();
+    }
+
+    public World getWorld() { return this.world; }
+
+    public ChunkGenerator getGenerator() { return this.generator; }
+
+    public int getAhead() { return this.ahead.size(); }
+
+    public long getServed() { return this.served; }
+
+    public long getMissed() { return this.missed; }
+}
@@ -0,0 +1,98 @@
+package com.blockycraft.blockyborder;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+/**
+ * Descarrega (salvando) os chunks que o /fill já terminou de usar.
+ *
+ * Um chunk só é considerado "assentado" quando ele e todos os vizinhos dentro
+ * da área do trabalho já foram populados: os populators escrevem nos vizinhos,
+ * então descarregar antes disso faria o chunk ser recarregado logo em seguida.
+ */
+class ChunkUnloader {
+    interface Settled {
+        boolean isSettled(int chunkX, int chunkZ);
+    }
+
+    /** Último acesso a um chunk assentado, ainda carregado, antes de salvá-lo. */
+    interface BeforeUnload {
+        void beforeUnload(World world, int chunkX, int chunkZ);
+    }
+
+    /** O chunk já está salvo em disco: foi descarregado, por nós ou pelo servidor. */
+    interface Saved {
+        void saved(int chunkX, int chunkZ);
+    }
+
+    private final World world;
+    private final int minX, maxX, minZ, maxZ;
+    private final ArrayDeque<Long> queue = new ArrayDeque<>();
+    private final Set<Long> queued = new HashSet<>();
+    private long unloaded = 0;
+    private BeforeUnload beforeUnload;
+    private Saved saved;
+
+    ChunkUnloader(World world, int minX, int maxX, int minZ, int maxZ) {
+        this.world = world;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+    }
+
+    public void setBeforeUnload(BeforeUnload beforeUnload) { this.beforeUnload = beforeUnload; }
+
+    public void setSaved(Saved saved) { this.saved = saved; }
+
+    static long key(int chunkX, int chunkZ) {
+        return ((long)chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Percorre os chunks carregados e enfileira os assentados. Considera também
+     * a faixa de 1 chunk em volta da área, que os populators costumam carregar.
+     */
+    public void sweep(Settled settled) {
+        for (Chunk c : this.world.getLoadedChunks()) {
+            int x = c.getX(), z = c.getZ();
+            if (x < this.minX - 1 || x > this.maxX + 1 || z < this.minZ - 1 || z > this.maxZ + 1) continue;
+            Long k = key(x, z);
+            if (!this.queued.contains(k) && settled.isSettled(x, z)) {
+                this.queued.add(k);
+                this.queue.add(k);
+            }
+        }
+    }
+
+    /** Salva e descarrega até {@code max} chunks da fila. */
+    public int unloadBatch(int max) {
+        int count = 0;
+        while (count < max && !this.queue.isEmpty()) {
+            long k = this.queue.poll();
+            this.queued.remove(k);
+            int x = (int)(k >> 32), z = (int)k;
+            if (!this.world.isChunkLoaded(x, z)) {
+                // O servidor descarregou antes de nós, e ele sempre salva ao descarregar.
+                if (this.saved != null) this.saved.saved(x, z);
+                continue;
+            }
+            if (this.beforeUnload != null) this.beforeUnload.beforeUnload(this.world, x, z);
+            // safe=true: o servidor recusa se houver jogador por perto; o chunk
+            // volta a ser enfileirado na próxima varredura se continuar carregado.
+            if (this.world.unloadChunk(x, z, true, true)) {
+                count++;
+                this.unloaded++;
+                if (this.saved != null) this.saved.saved(x, z);
+            }
+        }
+        return count;
+    }
+
+    public int pending() { return this.queue.size(); }
+
+    public long getUnloaded() { return this.unloaded; }
+}
@@ -0,0 +1,44 @@
+package com.blockycraft.blockyborder;
+
+import org.bukkit.block.Block;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockListener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Mantém o {@link EdgeHeightIndex} válido quando jogadores mexem em blocos das
+ * colunas de destino: a coluna é esquecida na hora e recalculada no tick
+ * seguinte, quando a mudança já foi aplicada.
+ *
+ * Só colocar e quebrar blocos chegam aqui. Líquidos escorrendo, explosões,
+ * crescimento de árvores e mudanças de outros plugins não geram esses
+ * eventos; para esses casos o teleporte confere os blocos do destino antes de
+ * usar a altura do índice.
+ */
+class EdgeBlockListener extends BlockListener {
+    private final Plugin plugin;
+    private final EdgeHeightIndex index;
+
+    EdgeBlockListener(Plugin plugin, EdgeHeightIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+    }
+
+    public void onBlockPlace(BlockPlaceEvent event) {
+        if (!event.isCancelled()) changed(event.getBlock());
+    }
+
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (!event.isCancelled()) changed(event.getBlock());
+    }
+
+    private void changed(final Block block) {
+        final int x = block.getX(), z = block.getZ();
+        if (!this.index.isEdgeColumn(x, z) || !block.getWorld().getName().equals(this.index.getWorld())) return;
+        this.index.invalidate(x, z);
+        this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin, new Runnable() {
+            public void run() { EdgeBlockListener.this.index.updateColumn(block.getWorld(), x, z); }
+        }, 1L);
+    }
+}
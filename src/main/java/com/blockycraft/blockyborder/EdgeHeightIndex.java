@@ -0,0 +1,248 @@
+package com.blockycraft.blockyborder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Altura segura de pouso para cada coluna onde um wrap-around pode terminar.
+ *
+ * Os destinos possíveis são só quatro linhas: x = minX + buffer e
+ * x = maxX - buffer (ao longo de todo Z) e z = minZ + buffer e z = maxZ - buffer
+ * (ao longo de todo X). Para cada coluna dessas linhas guardamos num byte o Y
+ * dos pés do jogador sobre o bloco mais alto, desde que esse bloco seja sólido
+ * (nem água, nem lava, nem fogo, nem cacto) e haja dois blocos de ar acima.
+ * Assim o teleporte escolhe a altura com uma leitura de array e só confere os
+ * dois blocos do jogador. Colunas ainda não calculadas devolvem
+ * {@link #UNKNOWN} e são calculadas no teleporte; colunas sem pouso seguro
+ * devolvem {@link #UNSAFE} e o teleporte procura a vizinha segura mais
+ * próxima na mesma linha.
+ *
+ * O índice só fica sabendo de mudanças feitas por jogadores (ver
+ * {@link EdgeBlockListener}); água que escorre, explosões, árvores que crescem
+ * ou outros plugins mexem na coluna sem avisar. Por isso o teleporte confere
+ * os dois blocos de ar do destino e recalcula a coluna se eles não estiverem
+ * mais livres.
+ */
+class EdgeHeightIndex {
+    private static final int MAGIC = 0x42424548; // "BBEH"
+    private static final int VERSION = 1;
+    static final byte UNKNOWN = -1, UNSAFE = -2;
+    static final long NO_COLUMN = Long.MIN_VALUE;
+    private static final int WORLD_HEIGHT = 128;
+
+    private final String world;
+    private final int westX, eastX, northZ, southZ; // coordenadas de bloco das quatro linhas
+    private final int minX, minZ;
+    // westLine/eastLine indexadas por z - minZ; northLine/southLine por x - minX
+    private final byte[] westLine, eastLine, northLine, southLine;
+    private int known = 0;
+    private boolean dirty = false;
+
+    EdgeHeightIndex(String world, BorderBounds b) {
+        this.world = world;
+        this.westX = (int)Math.floor(b.minX + b.buffer);
+        this.eastX = (int)Math.floor(b.maxX - b.buffer);
+        this.northZ = (int)Math.floor(b.minZ + b.buffer);
+        this.southZ = (int)Math.floor(b.maxZ - b.buffer);
+        this.minX = (int)Math.floor(b.minX);
+        this.minZ = (int)Math.floor(b.minZ);
+        int lengthZ = (int)Math.floor(b.maxZ) - this.minZ + 1, lengthX = (int)Math.floor(b.maxX) - this.minX + 1;
+        this.westLine = new byte[lengthZ];
+        this.eastLine = new byte[lengthZ];
+        this.northLine = new byte[lengthX];
+        this.southLine = new byte[lengthX];
+        Arrays.fill(this.westLine, UNKNOWN);
+        Arrays.fill(this.eastLine, UNKNOWN);
+        Arrays.fill(this.northLine, UNKNOWN);
+        Arrays.fill(this.southLine, UNKNOWN);
+    }
+
+    public String getWorld() { return this.world; }
+
+    /**
+     * Y de pouso seguro para o destino (x, z); {@link #UNSAFE} se a coluna não
+     * tem pouso seguro ou {@link #UNKNOWN} se ela ainda não foi calculada (ou
+     * não é um destino de wrap).
+     */
+    public int landingY(int x, int z) {
+        byte y = UNKNOWN;
+        if (x == this.westX) y = at(this.westLine, z - this.minZ);
+        else if (x == this.eastX) y = at(this.eastLine, z - this.minZ);
+        if (y < 0) {
+            byte other = UNKNOWN;
+            if (z == this.northZ) other = at(this.northLine, x - this.minX);
+            else if (z == this.southZ) other = at(this.southLine, x - this.minX);
+            if (other != UNKNOWN) y = other; // num canto, uma linha pode saber o que a outra não sabe
+        }
+        return y;
+    }
+
+    /**
+     * Coluna com pouso seguro já calculado mais próxima de (x, z) ao longo da
+     * mesma linha de destino, até {@code radius} blocos, empacotada como
+     * {@code (x << 32) | z}; {@link #NO_COLUMN} se não houver.
+     */
+    public long nearestSafeColumn(int x, int z, int radius) {
+        for (int d = 1; d <= radius; d++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+                int s = sign * d;
+                if ((x == this.westX && at(this.westLine, z + s - this.minZ) >= 0)
+                    || (x == this.eastX && at(this.eastLine, z + s - this.minZ) >= 0))
+                    return column(x, z + s);
+                if ((z == this.northZ && at(this.northLine, x + s - this.minX) >= 0)
+                    || (z == this.southZ && at(this.southLine, x + s - this.minX) >= 0))
+                    return column(x + s, z);
+            }
+        }
+        return NO_COLUMN;
+    }
+
+    private static long column(int x, int z) {
+        return ((long)x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /** Os dois blocos do jogador (pés e cabeça) em {@code feetY} ainda são ar? */
+    static boolean isClear(World w, int x, int feetY, int z) {
+        return w.getBlockTypeIdAt(x, feetY, z) == Material.AIR.getId() && w.getBlockTypeIdAt(x, feetY + 1, z) == Material.AIR.getId();
+    }
+
+    private static byte at(byte[] line, int i) {
+        return i >= 0 && i < line.length ? line[i] : UNKNOWN;
+    }
+
+    /** A coluna (x, z) é um destino possível de wrap? */
+    public boolean isEdgeColumn(int x, int z) {
+        boolean inX = x >= this.minX && x < this.minX + this.northLine.length;
+        boolean inZ = z >= this.minZ && z < this.minZ + this.westLine.length;
+        return (inZ && (x == this.westX || x == this.eastX)) || (inX && (z == this.northZ || z == this.southZ));
+    }
+
+    /** O chunk contém alguma coluna de destino? */
+    public boolean touchesChunk(int chunkX, int chunkZ) {
+        int x0 = chunkX << 4, z0 = chunkZ << 4;
+        boolean crossesX = (this.westX >= x0 && this.westX < x0 + 16) || (this.eastX >= x0 && this.eastX < x0 + 16);
+        boolean crossesZ = (this.northZ >= z0 && this.northZ < z0 + 16) || (this.southZ >= z0 && this.southZ < z0 + 16);
+        return (crossesX && z0 + 15 >= this.minZ && z0 < this.minZ + this.westLine.length)
+            || (crossesZ && x0 + 15 >= this.minX && x0 < this.minX + this.northLine.length);
+    }
+
+    /** Calcula as colunas de destino dentro de um chunk carregado. */
+    public void updateChunk(World w, int chunkX, int chunkZ) {
+        if (!touchesChunk(chunkX, chunkZ)) return;
+        int x0 = chunkX << 4, z0 = chunkZ << 4;
+        for (int dx = 0; dx < 16; dx++)
+            for (int dz = 0; dz < 16; dz++)
+                if (isEdgeColumn(x0 + dx, z0 + dz)) updateColumn(w, x0 + dx, z0 + dz);
+    }
+
+    /** Recalcula uma coluna de destino; o chunk dela precisa estar carregado. */
+    public void updateColumn(World w, int x, int z) {
+        if (!isEdgeColumn(x, z)) return;
+        store(x, z, computeLanding(w, x, z));
+    }
+
+    /** Esquece uma coluna (por exemplo, porque um bloco dela mudou). */
+    public void invalidate(int x, int z) {
+        if (isEdgeColumn(x, z)) store(x, z, UNKNOWN);
+    }
+
+    private void store(int x, int z, byte y) {
+        if (x == this.westX) set(this.westLine, z - this.minZ, y);
+        if (x == this.eastX) set(this.eastLine, z - this.minZ, y);
+        if (z == this.northZ) set(this.northLine, x - this.minX, y);
+        if (z == this.southZ) set(this.southLine, x - this.minX, y);
+    }
+
+    private void set(byte[] line, int i, byte y) {
+        if (i < 0 || i >= line.length || line[i] == y) return;
+        if (line[i] == UNKNOWN) this.known++;
+        else if (y == UNKNOWN) this.known--;
+        line[i] = y;
+        this.dirty = true;
+    }
+
+    /**
+     * Só o bloco mais alto da coluna conta: procurar mais para baixo levaria o
+     * jogador para dentro de cavernas debaixo do mar.
+     */
+    static byte computeLanding(World w, int x, int z) {
+        for (int y = WORLD_HEIGHT - 1; y > 0; y--) {
+            int id = w.getBlockTypeIdAt(x, y, z);
+            if (id == Material.AIR.getId()) continue;
+            if (!isSafeGround(id) || y + 2 >= WORLD_HEIGHT) return UNSAFE;
+            return w.getBlockTypeIdAt(x, y + 1, z) == Material.AIR.getId() && w.getBlockTypeIdAt(x, y + 2, z) == Material.AIR.getId()
+                ? (byte)(y + 1) : UNSAFE;
+        }
+        return UNSAFE;
+    }
+
+    private static boolean isSafeGround(int id) {
+        return id != Material.WATER.getId() && id != Material.STATIONARY_WATER.getId()
+            && id != Material.LAVA.getId() && id != Material.STATIONARY_LAVA.getId()
+            && id != Material.FIRE.getId() && id != Material.CACTUS.getId();
+    }
+
+    public int getKnown() { return this.known; }
+
+    public int getColumns() { return 2 * (this.westLine.length + this.northLine.length); }
+
+    public boolean isDirty() { return this.dirty; }
+
+    public void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(this.world);
+            out.writeInt(this.westX);
+            out.writeInt(this.eastX);
+            out.writeInt(this.northZ);
+            out.writeInt(this.southZ);
+            out.writeInt(this.minX);
+            out.writeInt(this.minZ);
+            out.writeInt(this.westLine.length);
+            out.writeInt(this.northLine.length);
+            out.write(this.westLine);
+            out.write(this.eastLine);
+            out.write(this.northLine);
+            out.write(this.southLine);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.dirty = false;
+    }
+
+    /**
+     * Carrega os valores do arquivo se ele foi gerado para a mesma borda; senão
+     * (borda ou buffer mudaram) o arquivo é ignorado e o índice fica vazio.
+     */
+    public boolean load(File file) throws IOException {
+        if (!file.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            if (!in.readUTF().equals(this.world)
+                || in.readInt() != this.westX || in.readInt() != this.eastX || in.readInt() != this.northZ || in.readInt() != this.southZ
+                || in.readInt() != this.minX || in.readInt() != this.minZ
+                || in.readInt() != this.westLine.length || in.readInt() != this.northLine.length)
+                return false;
+            in.readFully(this.westLine);
+            in.readFully(this.eastLine);
+            in.readFully(this.northLine);
+            in.readFully(this.southLine);
+        }
+        this.known = 0;
+        for (byte[] line : new byte[][] { this.westLine, this.eastLine, this.northLine, this.southLine })
+            for (byte y : line)
+                if (y != UNKNOWN) this.known++;
+        this.dirty = false;
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.blockycraft.blockyborder;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+/**
+ * Percorre, alguns por tick, todos os chunks cortados pelas linhas de destino
+ * do wrap e calcula as alturas de pouso no {@link EdgeHeightIndex}. Chunks que
+ * não estavam carregados são carregados (e gerados, se preciso) só para isso e
+ * liberados em seguida.
+ */
+class EdgeIndexBuilder implements Runnable {
+    interface Done {
+        void finished(EdgeIndexBuilder builder);
+    }
+
+    private final World world;
+    private final EdgeHeightIndex index;
+    private final int perTick;
+    private final Iterator<Long> chunks;
+    private final int total;
+    private final Done done;
+    private int processed = 0;
+    private int taskId;
+
+    EdgeIndexBuilder(World world, EdgeHeightIndex index, BorderBounds b, int perTick, Done done) {
+        this.world = world;
+        this.index = index;
+        this.perTick = perTick;
+        this.done = done;
+        Set<Long> keys = new LinkedHashSet<>();
+        int cminX = (int)Math.floor(b.minX) >> 4, cmaxX = (int)Math.floor(b.maxX) >> 4;
+        int cminZ = (int)Math.floor(b.minZ) >> 4, cmaxZ = (int)Math.floor(b.maxZ) >> 4;
+        for (int cx = cminX; cx <= cmaxX; cx++)
+            for (int cz = cminZ; cz <= cmaxZ; cz++)
+                if (index.touchesChunk(cx, cz)) keys.add(ChunkUnloader.key(cx, cz));
+        this.total = keys.size();
+        this.chunks = keys.iterator();
+    }
+
+    public void setTaskId(int id) { this.taskId = id; }
+
+    public int getProcessed() { return this.processed; }
+
+    public int getTotal() { return this.total; }
+
+    public void run() {
+        for (int i = 0; i < this.perTick && this.chunks.hasNext(); i++) {
+            long key = this.chunks.next();
+            int x = (int)(key >> 32), z = (int)key;
+            boolean wasLoaded = this.world.isChunkLoaded(x, z);
+            if (!wasLoaded) this.world.loadChunk(x, z);
+            this.index.updateChunk(this.world, x, z);
+            if (!wasLoaded) this.world.unloadChunkRequest(x, z);
+            this.processed++;
+        }
+        if (!this.chunks.hasNext()) {
+            Bukkit.getScheduler().cancelTask(this.taskId);
+            this.done.finished(this);
+        }
+    }
+}
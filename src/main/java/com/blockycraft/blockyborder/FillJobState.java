@@ -0,0 +1,111 @@
+package com.blockycraft.blockyborder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Retrato imutável do estado de um trabalho de /fill.
+ *
+ * Barato de criar na thread principal a cada tick; quem grava em disco é o
+ * {@link CheckpointWriter}. O progresso por chunk fica no {@link ChunkBitmap};
+ * aqui ficam os parâmetros do trabalho e a posição na ordem de visita, que
+ * serve só para retomar sem repercorrer a sequência desde o início.
+ */
+final class FillJobState {
+    static final int MAGIC = 0x42424A46; // "BBJF"
+    static final int VERSION = 1;
+
+    final String world;
+    final int freq, pad, minX, maxX, minZ, maxZ, total;
+    final double budgetMs, minTps;
+    final FillTraversal.Order order;
+    final boolean prescan, scanned;
+    final int position, generated;
+
+    FillJobState(String world, int freq, int pad, int minX, int maxX, int minZ, int maxZ, int total, double budgetMs, double minTps,
+                 FillTraversal.Order order, boolean prescan, boolean scanned, int position, int generated) {
+        this.world = world;
+        this.freq = freq;
+        this.pad = pad;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+        this.total = total;
+        this.budgetMs = budgetMs;
+        this.minTps = minTps;
+        this.order = order;
+        this.prescan = prescan;
+        this.scanned = scanned;
+        this.position = position;
+        this.generated = generated;
+    }
+
+    FillJobState withScanned() {
+        return new FillJobState(this.world, this.freq, this.pad, this.minX, this.maxX, this.minZ, this.maxZ, this.total, this.budgetMs, this.minTps,
+            this.order, this.prescan, true, this.position, this.generated);
+    }
+
+    FillJobState withProgress(int position, int generated) {
+        if (position == this.position && generated == this.generated) return this;
+        return new FillJobState(this.world, this.freq, this.pad, this.minX, this.maxX, this.minZ, this.maxZ, this.total, this.budgetMs, this.minTps,
+            this.order, this.prescan, this.scanned, position, generated);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(this.world);
+        out.writeInt(this.freq);
+        out.writeInt(this.pad);
+        out.writeInt(this.minX);
+        out.writeInt(this.maxX);
+        out.writeInt(this.minZ);
+        out.writeInt(this.maxZ);
+        out.writeInt(this.total);
+        out.writeDouble(this.budgetMs);
+        out.writeDouble(this.minTps);
+        out.writeByte(this.order.ordinal());
+        out.writeBoolean(this.prescan);
+        out.writeBoolean(this.scanned);
+        out.writeInt(this.position);
+        out.writeInt(this.generated);
+    }
+
+    static FillJobState readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("assinatura inválida");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("versão " + version + " não suportada");
+        String world = in.readUTF();
+        int freq = in.readInt(), pad = in.readInt();
+        int minX = in.readInt(), maxX = in.readInt(), minZ = in.readInt(), maxZ = in.readInt();
+        int total = in.readInt();
+        double budgetMs = in.readDouble(), minTps = in.readDouble();
+        int order = in.readUnsignedByte();
+        if (order >= FillTraversal.Order.values().length) throw new IOException("ordem inválida: " + order);
+        boolean prescan = in.readBoolean(), scanned = in.readBoolean();
+        int position = in.readInt(), generated = in.readInt();
+        return new FillJobState(world, freq, pad, minX, maxX, minZ, maxZ, total, budgetMs, minTps,
+            FillTraversal.Order.values()[order], prescan, scanned, position, generated);
+    }
+
+    /** Lê um fill_job.properties das versões anteriores. */
+    static FillJobState fromProperties(Properties p, String world) {
+        return new FillJobState(world,
+            Integer.parseInt(p.getProperty("freq")),
+            Integer.parseInt(p.getProperty("pad", "0")),
+            Integer.parseInt(p.getProperty("cminX")),
+            Integer.parseInt(p.getProperty("cmaxX")),
+            Integer.parseInt(p.getProperty("cminZ")),
+            Integer.parseInt(p.getProperty("cmaxZ")),
+            Integer.parseInt(p.getProperty("total")),
+            Double.parseDouble(p.getProperty("budgetMs", "0")),
+            Double.parseDouble(p.getProperty("minTps", "0")),
+            FillTraversal.Order.parse(p.getProperty("order"), FillTraversal.Order.COLUMN),
+            p.getProperty("prescan", "false").equals("true"),
+            p.getProperty("scanned", "false").equals("true"),
+            0, 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Métricas do /fill expostas por JMX em
+ * {@code com.blockycraft.blockyborder:type=Fill}. Os percentis e taxas são do
+ * último intervalo de métricas ({@code metrics-interval}).
+ */
+public interface FillMetricsMBean {
+    int getActiveJobs();
+
+    long getChunksDone();
+
+    long getChunksTotal();
+
+    double getChunksPerSecond();
+
+    /** Segundos até o fim de todos os trabalhos, ou -1 se ainda não dá para estimar. */
+    long getEtaSeconds();
+
+    double getGetChunkP50Millis();
+
+    double getGetChunkP95Millis();
+
+    double getGetChunkP99Millis();
+
+    double getPopulateP50Millis();
+
+    double getPopulateP95Millis();
+
+    double getPopulateP99Millis();
+
+    double getTickCostMeanMillis();
+
+    double getTickCostP99Millis();
+
+    double getTickCostMaxMillis();
+
+    double getTps();
+}
@@ -0,0 +1,234 @@
+package com.blockycraft.blockyborder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * Fila de prioridade do /fill: chunks que faltam perto dos jogadores e dos
+ * destinos de wrap recentes são gerados antes da ordem normal de visita, para
+ * ninguém chegar a terreno ainda não gerado (que o servidor geraria na hora,
+ * travando o tick).
+ *
+ * A fila é refeita em ciclos de {@link #CYCLE_TICKS} ticks, alguns jogadores
+ * por tick ({@link #tick}), para não concentrar o trabalho de todos num tick
+ * só: para cada jogador do mundo e cada destino de wrap dos últimos
+ * {@code wrapTicks}, os chunks a até {@code radius} chunks que ainda faltam
+ * no trabalho e que não estão carregados (carregado quer dizer que já
+ * existe). Enquanto um ciclo é montado, {@link #poll} serve a fila do ciclo
+ * anterior, o mais perto primeiro. Nada aqui muda a cobertura do trabalho: o
+ * mapa de bits continua sendo a única fonte de "pronto", e a ordem de visita
+ * pula o que a fila já gerou.
+ */
+class FillPriority {
+    static final long NONE = Long.MIN_VALUE; // fila vazia
+    static final int CYCLE_TICKS = 20;
+    private static final int MAX_WRAPS = 64;
+
+    /** O chunk ainda falta no trabalho (dentro da área e do formato, e não gerado)? */
+    interface Pending {
+        boolean isPending(int chunkX, int chunkZ);
+    }
+
+    /**
+     * Uma fila completa: para cada distância (ao quadrado, em chunks) os
+     * chunks candidatos, e a menor distância de cada chunk num mapa sem
+     * boxing. Um chunk que aparece de novo mais perto fica também no balde
+     * antigo; essa cópia é pulada ao sair.
+     */
+    private static final class Queue {
+        final DistanceMap best = new DistanceMap();
+        final long[][] buckets;
+        final int[] sizes, read;
+        int bucket = 0, remaining = 0;
+
+        Queue(int maxDistance) {
+            this.buckets = new long[maxDistance + 1][];
+            this.sizes = new int[maxDistance + 1];
+            this.read = new int[maxDistance + 1];
+        }
+
+        void add(long key, int distance) {
+            int old = this.best.get(key);
+            if (old >= 0 && old <= distance) return;
+            if (old < 0) this.remaining++;
+            this.best.put(key, distance);
+            long[] b = this.buckets[distance];
+            int n = this.sizes[distance];
+            if (b == null) b = this.buckets[distance] = new long[16];
+            else if (n == b.length) b = this.buckets[distance] = Arrays.copyOf(b, n * 2);
+            b[n] = key;
+            this.sizes[distance] = n + 1;
+        }
+
+        /** Próximo chunk, o mais perto primeiro, ou {@link #NONE}. */
+        long next() {
+            for (; this.bucket < this.sizes.length; this.bucket++) {
+                int d = this.bucket;
+                while (this.read[d] < this.sizes[d]) {
+                    long key = this.buckets[d][this.read[d]++];
+                    if (this.best.get(key) != d) continue; // há uma cópia mais perto
+                    this.remaining--;
+                    return key;
+                }
+            }
+            return NONE;
+        }
+
+        void clear() {
+            this.best.clear();
+            Arrays.fill(this.sizes, 0);
+            Arrays.fill(this.read, 0);
+            this.bucket = 0;
+            this.remaining = 0;
+        }
+    }
+
+    /**
+     * Chave de chunk para distância, com endereçamento aberto e sem boxing,
+     * como o {@link GraceTable}. Esvaziar só troca a geração: posições de
+     * outra geração contam como vazias.
+     */
+    private static final class DistanceMap {
+        private long[] keys = new long[256];
+        private int[] values = new int[256], stamps = new int[256];
+        private int generation = 1, size = 0;
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int)(h ^ (h >>> 32));
+        }
+
+        /** Distância guardada, ou -1. */
+        int get(long key) {
+            int mask = this.keys.length - 1;
+            for (int i = mix(key) & mask; this.stamps[i] == this.generation; i = (i + 1) & mask)
+                if (this.keys[i] == key) return this.values[i];
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((this.size + 1) * 2 > this.keys.length) grow();
+            int mask = this.keys.length - 1;
+            int i = mix(key) & mask;
+            for (; this.stamps[i] == this.generation; i = (i + 1) & mask) {
+                if (this.keys[i] == key) {
+                    this.values[i] = value;
+                    return;
+                }
+            }
+            this.stamps[i] = this.generation;
+            this.keys[i] = key;
+            this.values[i] = value;
+            this.size++;
+        }
+
+        void clear() {
+            this.size = 0;
+            if (++this.generation == Integer.MAX_VALUE) {
+                Arrays.fill(this.stamps, 0);
+                this.generation = 1;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = this.keys;
+            int[] oldValues = this.values, oldStamps = this.stamps;
+            int oldGeneration = this.generation;
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new int[oldKeys.length * 2];
+            this.stamps = new int[oldKeys.length * 2];
+            this.generation = 1;
+            this.size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldStamps[i] == oldGeneration) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private final int radius;
+    private final long wrapTicks;
+    private final long[] wrapKeys = new long[MAX_WRAPS], wrapTimes = new long[MAX_WRAPS];
+    private int wrapCount = 0, wrapNext = 0;
+    private Queue serving, building;
+    private List<Player> players = Collections.emptyList();
+    private int nextPlayer = 0, nextWrap = 0, cycleWraps = 0, perTick = 1;
+    private long promoted = 0;
+
+    FillPriority(int radius, long wrapTicks) {
+        this.radius = radius;
+        this.wrapTicks = wrapTicks;
+        this.serving = new Queue(radius * radius);
+        this.building = new Queue(radius * radius);
+    }
+
+    /** Um jogador acabou de chegar por wrap a este chunk; só na thread principal. */
+    public void noteWrap(int chunkX, int chunkZ, long tick) {
+        this.wrapKeys[this.wrapNext] = ChunkUnloader.key(chunkX, chunkZ);
+        this.wrapTimes[this.wrapNext] = tick;
+        this.wrapNext = (this.wrapNext + 1) % MAX_WRAPS;
+        this.wrapCount = Math.min(this.wrapCount + 1, MAX_WRAPS);
+    }
+
+    /**
+     * Avança o ciclo em andamento com a sua parte de jogadores e destinos de
+     * wrap; no fim do ciclo, a fila montada passa a ser servida e outro
+     * começa. Chamado a cada tick do /fill.
+     */
+    public void tick(World world, Pending pending, long tick) {
+        if (this.nextPlayer >= this.players.size() && this.nextWrap >= this.cycleWraps) {
+            Queue done = this.serving;
+            this.serving = this.building;
+            this.building = done;
+            this.building.clear();
+            this.players = world.getPlayers();
+            this.nextPlayer = 0;
+            this.nextWrap = 0;
+            this.cycleWraps = this.wrapCount;
+            this.perTick = Math.max(1, (this.players.size() + this.cycleWraps + CYCLE_TICKS - 1) / CYCLE_TICKS);
+        }
+        for (int n = 0; n < this.perTick; n++) {
+            if (this.nextPlayer < this.players.size()) {
+                Location l = this.players.get(this.nextPlayer++).getLocation();
+                addAround(world, pending, l.getBlockX() >> 4, l.getBlockZ() >> 4);
+            } else if (this.nextWrap < this.cycleWraps) {
+                int i = this.nextWrap++;
+                if (tick - this.wrapTimes[i] <= this.wrapTicks)
+                    addAround(world, pending, (int)(this.wrapKeys[i] >> 32), (int)this.wrapKeys[i]);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void addAround(World world, Pending pending, int cx, int cz) {
+        int r2 = this.radius * this.radius;
+        for (int dx = -this.radius; dx <= this.radius; dx++)
+            for (int dz = -this.radius; dz <= this.radius; dz++) {
+                int x = cx + dx, z = cz + dz, d = dx * dx + dz * dz;
+                // O que já está pronto sai antes de perguntar ao servidor se está carregado.
+                if (d > r2 || !pending.isPending(x, z) || world.isChunkLoaded(x, z))
+                    continue;
+                this.building.add(ChunkUnloader.key(x, z), d);
+            }
+    }
+
+    /** Próximo chunk que ainda falta, ou {@link #NONE}. */
+    public long poll(Pending pending) {
+        long key;
+        while ((key = this.serving.next()) != NONE) {
+            if (!pending.isPending((int)(key >> 32), (int)key)) continue; // gerado desde que entrou na fila
+            this.promoted++;
+            return key;
+        }
+        return NONE;
+    }
+
+    /** Chunks ainda na fila servida (alguns podem já ter sido gerados pela ordem normal). */
+    public int getQueued() { return this.serving.remaining; }
+
+    /** Chunks gerados fora da ordem de visita por estarem perto de alguém. */
+    public long getPromoted() { return this.promoted; }
+}
@@ -0,0 +1,142 @@
+package com.blockycraft.blockyborder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Roda todos os trabalhos de /fill (no máximo um por mundo) numa única tarefa
+ * por tick.
+ *
+ * O orçamento do tick é um só: o maior {@code budget=} entre os trabalhos
+ * ativos, ajustado pelo TPS como no modo adaptativo, ou, sem orçamento de
+ * tempo, o maior {@code freq}. Um segundo trabalho não soma carga ao tick;
+ * ele divide o mesmo orçamento. A divisão é em partes iguais, e o que um
+ * trabalho não usa passa para os seguintes no mesmo tick. A ordem gira a cada
+ * tick, e só o primeiro da vez pode estourar a sua parte com um chunk caro,
+ * então nenhum mundo fica sempre com a sobra.
+ * O heap é vigiado aqui, uma vez para todos: acima da marca alta nenhum
+ * trabalho gera, todos só salvam/descarregam, e a memória liberada é
+ * recolhida pelo próprio coletor da JVM. O heap pode ficar alto por motivos
+ * que não são o /fill (outros plugins, jogadores); então, a cada
+ * {@link #STALL_WARN_NANOS} de pausa, um aviso diz que a geração está parada.
+ */
+class FillScheduler implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    private static final int FLUSH_BATCH_MULTIPLIER = 4; // pausado, descarrega mais rápido
+    private static final long STALL_WARN_NANOS = 5L * 60 * 1_000_000_000L;
+
+    private final BlockyBorder plugin;
+    private final HeapWatermarks heap;
+    private final int unloadBatch;
+    private final List<FillStepTask> jobs = new ArrayList<>();
+    private final List<FillStepTask> active = new ArrayList<>();
+    private AdaptiveFillBudget budget; // refeito quando a lista de trabalhos muda
+    private int rotation = 0;
+    private long pausedSinceNanos = 0, lastStallWarnNanos = 0;
+
+    FillScheduler(BlockyBorder plugin, HeapWatermarks heap, int unloadBatch) {
+        this.plugin = plugin;
+        this.heap = heap;
+        this.unloadBatch = unloadBatch;
+    }
+
+    public void add(FillStepTask job) {
+        this.jobs.add(job);
+        this.budget = null;
+    }
+
+    public List<FillStepTask> getJobs() { return this.jobs; }
+
+    /** Orçamento compartilhado atual, ou null se não houver trabalho gerando. */
+    public AdaptiveFillBudget getBudget() { return this.budget; }
+
+    public void run() {
+        if (this.jobs.isEmpty()) return;
+        long start = System.nanoTime();
+        step();
+        this.plugin.getMetrics().recordFillTick(System.nanoTime() - start);
+    }
+
+    private void step() {
+        // 1. TRABALHOS QUE TERMINARAM: esvaziam a fila de descarregamento e saem.
+        this.active.clear();
+        Iterator<FillStepTask> it = this.jobs.iterator();
+        while (it.hasNext()) {
+            FillStepTask job = it.next();
+            if (!job.isExhausted()) {
+                this.active.add(job);
+            } else if (job.drain(this.unloadBatch * FLUSH_BATCH_MULTIPLIER)) {
+                it.remove();
+                this.budget = null;
+                this.plugin.fillJobFinished(job.getBorder());
+            }
+        }
+        if (this.active.isEmpty()) return;
+
+        // 2. MEMÓRIA ALTA? Pausa a geração de todos e só salva/descarrega até baixar.
+        boolean wasPaused = this.heap.isPaused();
+        if (this.heap.update()) {
+            long now = System.nanoTime();
+            if (!wasPaused) {
+                LOG.info(String.format("[BlockyBorder] Heap em %.0f%%, pausando a geração para descarregar chunks...", HeapWatermarks.usedRatio() * 100.0));
+                this.pausedSinceNanos = now;
+                this.lastStallWarnNanos = now;
+            } else if (now - this.lastStallWarnNanos >= STALL_WARN_NANOS) {
+                this.lastStallWarnNanos = now;
+                LOG.warning(String.format("[BlockyBorder] Geração do /fill parada há %d min: heap em %.0f%%, acima da marca baixa de %.0f%% "
+                    + "mesmo com os chunks do /fill descarregados. Verifique o uso de memória do servidor ou ajuste fill-heap-high/fill-heap-low.",
+                    (now - this.pausedSinceNanos) / 60_000_000_000L, HeapWatermarks.usedRatio() * 100.0, this.heap.getLow() * 100.0));
+            }
+            for (FillStepTask job : this.active)
+                job.flush(this.unloadBatch * FLUSH_BATCH_MULTIPLIER);
+            return;
+        }
+        if (wasPaused)
+            LOG.info(String.format("[BlockyBorder] Heap em %.0f%%, retomando a geração.", HeapWatermarks.usedRatio() * 100.0));
+
+        // 3. GERAÇÃO, com o orçamento do tick dividido entre os trabalhos
+        if (this.budget == null)
+            this.budget = sharedBudget();
+        int n = this.active.size();
+        int first = this.rotation % n;
+        this.rotation = (first + 1) % n;
+        if (this.budget.isEnabled()) {
+            long remaining = this.budget.beginTick(this.plugin.getTickMonitor().getTps());
+            int chunksLeft = AdaptiveFillBudget.MAX_CHUNKS_PER_TICK;
+            for (int k = 0; k < n && remaining > 0 && chunksLeft > 0; k++) {
+                FillStepTask job = this.active.get((first + k) % n);
+                long sliceStart = System.nanoTime();
+                chunksLeft -= job.generate(chunksLeft, remaining / (n - k), k == 0);
+                remaining -= System.nanoTime() - sliceStart;
+            }
+        } else {
+            int remaining = maxFreq();
+            for (int k = 0; k < n && remaining > 0; k++) {
+                FillStepTask job = this.active.get((first + k) % n);
+                remaining -= job.generate(remaining / (n - k), 0L, false);
+            }
+        }
+
+        // 4. DESCARREGAMENTO em lotes pequenos e checkpoint de cada trabalho
+        for (FillStepTask job : this.active)
+            job.endTick(this.unloadBatch);
+    }
+
+    private AdaptiveFillBudget sharedBudget() {
+        double budgetMs = 0.0D, minTps = 0.0D;
+        for (FillStepTask job : this.jobs) {
+            budgetMs = Math.max(budgetMs, job.getState().budgetMs);
+            minTps = Math.max(minTps, job.getState().minTps);
+        }
+        return new AdaptiveFillBudget(budgetMs, minTps);
+    }
+
+    private int maxFreq() {
+        int freq = 1;
+        for (FillStepTask job : this.active)
+            freq = Math.max(freq, job.getFreq());
+        return freq;
+    }
+}
@@ -0,0 +1,331 @@
+package com.blockycraft.blockyborder;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.logging.Logger;
+import org.bukkit.World;
+
+/**
+ * Trabalho de pré-geração contínua de um mundo.
+ *
+ * Gera os chunks na ordem dada por um {@link FillTraversal}, pulando os que já
+ * estão marcados no {@link ChunkBitmap} e, com uma borda de outro formato, os
+ * que ficam fora dele (mais o pad), e ao mesmo tempo descarrega os chunks que
+ * já foram populados junto com todos os vizinhos.
+ *
+ * Um chunk populado só entra no mapa de bits depois de salvo em disco (quando
+ * é descarregado), senão um crash deixaria no mapa como prontos chunks que
+ * nunca chegaram aos arquivos de região. Até lá ele fica só na memória, em
+ * {@code populated}/{@code unsaved}, que contam como prontos nesta sessão, e
+ * a posição salva no checkpoint não passa do primeiro deles na ordem de visita.
+ * Não é agendado sozinho: o {@link FillScheduler} chama os passos a cada tick,
+ * dividindo o orçamento do tick entre os trabalhos ativos e pausando todos
+ * quando o heap passa da marca alta. Assim o mapa inteiro é gerado numa única
+ * sessão do servidor.
+ */
+class FillStepTask {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    private static final int LOG_FREQUENCY = 1000;
+    private static final int SWEEP_INTERVAL_TICKS = 40; // 2 segundos entre varreduras
+
+    private final BlockyBorder plugin;
+    private final WorldBorder border;
+    private final World world;
+    private final int minX, maxX, minZ, maxZ, freq, total;
+    private final FillTraversal traversal;
+    private final ChunkBitmap bitmap;
+    private final ShapeGrid shape; // null: retângulo, todos os chunks da área contam
+    private final int doneAtStart;
+    private int populatedCount = 0;
+    private final BitSet populated; // populados nesta sessão, salvos ou não
+    // Populados e ainda só na memória, com a posição na ordem de visita (-1: a ordem ainda não passou por eles).
+    private final Map<Long, Integer> unsaved = new HashMap<>();
+    private final BitSet unsavedPositions = new BitSet(); // as posições acima
+    private int savedBelow = 0; // tudo o que a ordem visitou antes desta posição está no mapa de bits
+    private FillJobState state;
+    private final AdaptiveFillBudget cost; // só a estimativa de custo por chunk deste mundo
+    private final RateCounter rate = new RateCounter();
+    private ChunkPipeline pipeline;
+    private final ChunkUnloader unloader;
+    private final ChunkUnloader.Settled settled = new ChunkUnloader.Settled() {
+        public boolean isSettled(int chunkX, int chunkZ) { return FillStepTask.this.isSettled(chunkX, chunkZ); }
+    };
+    private final FillPriority.Pending pending = new FillPriority.Pending() {
+        public boolean isPending(int chunkX, int chunkZ) { return FillStepTask.this.isPending(chunkX, chunkZ); }
+    };
+    private int logCounter = 0;
+    private int ticksSinceSweep = 0;
+    private int generatedThisTick = 0;
+    private boolean finalSweepDone = false;
+
+    FillStepTask(BlockyBorder plugin, WorldBorder border, World w, FillJobState state, ChunkBitmap bitmap) {
+        this.plugin = plugin;
+        this.border = border;
+        this.world = w;
+        this.state = state;
+        this.minX = state.minX;
+        this.maxX = state.maxX;
+        this.minZ = state.minZ;
+        this.maxZ = state.maxZ;
+        this.freq = state.freq;
+        this.total = state.total;
+        this.bitmap = bitmap;
+        this.shape = ShapeGrid.forFill(border.bounds.shape, state.pad);
+        this.doneAtStart = bitmap.count(this.shape);
+        this.populated = new BitSet((this.maxX - this.minX + 1) * (this.maxZ - this.minZ + 1));
+        this.cost = new AdaptiveFillBudget(state.budgetMs, state.minTps);
+        this.unloader = new ChunkUnloader(w, this.minX, this.maxX, this.minZ, this.maxZ);
+        this.unloader.setBeforeUnload(new ChunkUnloader.BeforeUnload() {
+            public void beforeUnload(World world, int chunkX, int chunkZ) { FillStepTask.this.plugin.chunkSettled(FillStepTask.this.border, world, chunkX, chunkZ); }
+        });
+        this.unloader.setSaved(new ChunkUnloader.Saved() {
+            public void saved(int chunkX, int chunkZ) { FillStepTask.this.saved(chunkX, chunkZ); }
+        });
+        // A posição salva é só um atalho: tudo antes dela já está marcado no mapa
+        // de bits (ver checkpointPosition), que continua sendo consultado chunk a chunk.
+        this.traversal = state.order.create(this.minX, this.maxX, this.minZ, this.maxZ);
+        while (this.traversal.position() < state.position && this.traversal.hasNext())
+            this.traversal.next();
+    }
+
+    public WorldBorder getBorder() { return this.border; }
+
+    /** Liga o modo em pipeline: o terreno vem pronto das threads de trabalho. */
+    public void setPipeline(ChunkPipeline pipeline) { this.pipeline = pipeline; }
+
+    public ChunkPipeline getPipeline() { return this.pipeline; }
+
+    /** Chunks que o formato da borda cobre, ou null sem formato. */
+    public ShapeGrid getShape() { return this.shape; }
+
+    /** Encerra o pipeline, se houver; chamado ao terminar ou desligar. */
+    public void closePipeline() {
+        if (this.pipeline == null) return;
+        this.pipeline.close();
+        this.pipeline = null;
+    }
+
+    public FillJobState getState() { return this.state; }
+
+    /** Chunks por tick pedidos no /fill (modo sem orçamento de tempo). */
+    public int getFreq() { return this.freq; }
+
+    /** O chunk (dentro da área) já foi gerado, numa sessão anterior ou nesta? */
+    private boolean isDone(int chunkX, int chunkZ) {
+        return this.bitmap.get(chunkX, chunkZ) || this.populated.get(localIndex(chunkX, chunkZ));
+    }
+
+    /** O chunk faz parte do trabalho? Fora do formato ele nunca é gerado. */
+    private boolean inShape(int chunkX, int chunkZ) {
+        return this.shape == null || this.shape.covers(chunkX, chunkZ);
+    }
+
+    /** O chunk faz parte do trabalho e ainda não foi gerado? */
+    private boolean isPending(int chunkX, int chunkZ) {
+        return chunkX >= this.minX && chunkX <= this.maxX && chunkZ >= this.minZ && chunkZ <= this.maxZ
+            && inShape(chunkX, chunkZ) && !isDone(chunkX, chunkZ);
+    }
+
+    private int localIndex(int chunkX, int chunkZ) {
+        return (chunkX - this.minX) * (this.maxZ - this.minZ + 1) + (chunkZ - this.minZ);
+    }
+
+    /**
+     * Um chunk que já existe mas pode estar só na memória (carregado pelo
+     * servidor): conta como pronto nesta sessão e vai para o mapa de bits
+     * quando for salvo, como um populado. Devolve false se ele não faz parte
+     * do trabalho ou já estava pronto.
+     */
+    boolean adoptLoaded(int chunkX, int chunkZ) {
+        if (!isPending(chunkX, chunkZ)) return false;
+        this.populated.set(localIndex(chunkX, chunkZ));
+        this.unsaved.put(ChunkUnloader.key(chunkX, chunkZ), -1);
+        this.populatedCount++;
+        return true;
+    }
+
+    /** O chunk foi salvo: agora sim ele pode ir para o mapa de bits. */
+    private void saved(int chunkX, int chunkZ) {
+        Integer position = this.unsaved.remove(ChunkUnloader.key(chunkX, chunkZ));
+        if (position == null) return;
+        if (position >= 0) this.unsavedPositions.clear(position);
+        this.bitmap.set(chunkX, chunkZ);
+    }
+
+    /** A ordem de visita passou por um chunk; se ele ainda não foi salvo, segura o checkpoint nele. */
+    private void visited(long key, int position) {
+        Integer old = this.unsaved.get(key);
+        if (old == null || old >= 0) return;
+        this.unsaved.put(key, position);
+        this.unsavedPositions.set(position);
+    }
+
+    /**
+     * Posição para o checkpoint: a da ordem de visita, mas nunca depois do
+     * primeiro chunk visitado que ainda não foi salvo, para que uma retomada
+     * depois de um crash passe por ele de novo.
+     */
+    private int checkpointPosition() {
+        int first = this.unsavedPositions.nextSetBit(this.savedBelow);
+        // Posições novas só aparecem à frente da ordem, então o que fica para trás não volta.
+        this.savedBelow = first < 0 ? this.traversal.position() : first;
+        return this.savedBelow;
+    }
+
+    /** Marca os populados que o servidor descarregou (e salvou) por conta própria. */
+    private void markUnloaded() {
+        Iterator<Map.Entry<Long, Integer>> it = this.unsaved.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Integer> e = it.next();
+            long key = e.getKey();
+            int x = (int)(key >> 32), z = (int)key;
+            if (this.world.isChunkLoaded(x, z)) continue;
+            it.remove();
+            if (e.getValue() >= 0) this.unsavedPositions.clear(e.getValue());
+            this.bitmap.set(x, z);
+        }
+    }
+
+    /**
+     * Salva o mundo se ainda houver chunks populados só na memória (os que o
+     * servidor não deixou descarregar por ter jogador perto) e marca todos no
+     * mapa de bits. Chamado ao terminar o trabalho e ao desligar o plugin.
+     */
+    public void saveRemaining() {
+        markUnloaded();
+        if (this.unsaved.isEmpty()) return;
+        this.world.save();
+        for (long key : this.unsaved.keySet())
+            this.bitmap.set((int)(key >> 32), (int)key);
+        this.unsaved.clear();
+        this.unsavedPositions.clear();
+    }
+
+    private boolean isSettled(int chunkX, int chunkZ) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int x = chunkX + dx, z = chunkZ + dz;
+                if (x < this.minX || x > this.maxX || z < this.minZ || z > this.maxZ || !inShape(x, z)) continue;
+                if (!isDone(x, z)) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Todos os chunks da área já foram visitados? */
+    public boolean isExhausted() { return !this.traversal.hasNext(); }
+
+    /**
+     * Depois da última geração, esvazia a fila de descarregamento aos poucos.
+     * Devolve true quando não sobrou nada e o trabalho pode ser encerrado.
+     */
+    public boolean drain(int batch) {
+        if (!this.finalSweepDone) {
+            closePipeline();
+            markUnloaded();
+            this.unloader.sweep(this.settled);
+            this.finalSweepDone = true;
+        }
+        if (this.unloader.pending() > 0) {
+            this.unloader.unloadBatch(batch);
+            return false;
+        }
+        saveRemaining();
+        this.bitmap.flush();
+        LOG.info("[BlockyBorder] Mapa de '" + this.world.getName() + "' completo! " + getDone() + " chunks gerados, "
+            + this.unloader.getUnloaded() + " descarregados.");
+        return true;
+    }
+
+    /** Heap alto: só salva/descarrega. Devolve quantos chunks ainda esperam. */
+    public int flush(int batch) {
+        if (this.unloader.pending() == 0) {
+            markUnloaded();
+            this.unloader.sweep(this.settled);
+        }
+        this.unloader.unloadBatch(batch);
+        return this.unloader.pending();
+    }
+
+    /**
+     * Gera até {@code maxChunks} chunks ou até a fatia de tempo acabar, o que vier
+     * primeiro ({@code sliceNanos} <= 0 desliga o limite de tempo). Com
+     * {@code firstFree} o primeiro chunk roda mesmo que não caiba na fatia, senão
+     * um chunk mais caro que o orçamento travaria o trabalho para sempre.
+     * Devolve quantos chunks foram gerados.
+     */
+    public int generate(int maxChunks, long sliceNanos, boolean firstFree) {
+        long start = System.nanoTime();
+        int count = 0;
+        if (this.pipeline != null) this.pipeline.topUp();
+        while (count < maxChunks && this.traversal.hasNext()) {
+            if (sliceNanos > 0 && !(count == 0 && firstFree) && !this.cost.hasRoom(System.nanoTime() - start, sliceNanos))
+                break;
+            // Primeiro o que falta perto de jogadores; a ordem de visita pula depois o que a fila gerou.
+            long key = this.border.priority != null ? this.border.priority.poll(this.pending) : FillPriority.NONE;
+            int position = -1;
+            if (key == FillPriority.NONE) {
+                position = this.traversal.position();
+                key = this.traversal.next();
+            }
+            int x = (int)(key >> 32), z = (int)key;
+            // Retomada e reexecução: o que já está marcado nunca é gerado de novo.
+            if (!inShape(x, z) || isDone(x, z)) {
+                if (position >= 0) visited(key, position);
+                continue;
+            }
+
+            long chunkStart = System.nanoTime();
+            this.plugin.forcePopulate(this.world, x, z, this.plugin.getMetrics(), ChunkChangelog.FILL);
+            this.populated.set(localIndex(x, z));
+            this.unsaved.put(key, position);
+            if (position >= 0) this.unsavedPositions.set(position);
+            this.populatedCount++;
+            this.cost.record(System.nanoTime() - chunkStart);
+            this.rate.mark();
+            if (this.pipeline != null) {
+                this.pipeline.discard(key); // não foi usado se o chunk já existia em disco
+                this.pipeline.topUp();
+            }
+
+            count++;
+            this.logCounter++;
+
+            if (this.logCounter >= LOG_FREQUENCY) {
+                int done = getDone();
+                double percent = (double)done / this.total * 100.0;
+                LOG.info(String.format("[BlockyBorder] Progresso em '%s': %d / %d chunks (%.2f%%), %d descarregados, %.2f ms/chunk, heap %.0f%%",
+                    this.world.getName(), done, this.total, percent, this.unloader.getUnloaded(), this.cost.getChunkMillis(), HeapWatermarks.usedRatio() * 100.0));
+                this.logCounter = 0;
+            }
+        }
+        this.generatedThisTick += count;
+        return count;
+    }
+
+    /** Fim do tick: descarregamento em lotes pequenos e retrato para o checkpoint. */
+    public void endTick(int unloadBatch) {
+        if (this.border.priority != null)
+            this.border.priority.tick(this.world, this.pending, this.plugin.getTickMonitor().getTick());
+        if (++this.ticksSinceSweep >= SWEEP_INTERVAL_TICKS) {
+            markUnloaded();
+            this.unloader.sweep(this.settled);
+            this.ticksSinceSweep = 0;
+        }
+        this.unloader.unloadBatch(unloadBatch);
+
+        this.state = this.state.withProgress(checkpointPosition(), this.state.generated + this.generatedThisTick);
+        this.generatedThisTick = 0;
+        this.border.checkpoints.offer(this.state);
+    }
+
+    /** Chunks prontos do trabalho, inclusive os populados nesta sessão que ainda não foram salvos. */
+    public int getDone() { return this.doneAtStart + this.populatedCount; }
+
+    public double getChunkMillis() { return this.cost.getChunkMillis(); }
+
+    /** Chunks gerados por segundo neste mundo; rolado pelas métricas. */
+    public RateCounter getRate() { return this.rate; }
+}
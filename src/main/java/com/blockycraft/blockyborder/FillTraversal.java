@@ -0,0 +1,167 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Ordem em que o /fill visita os chunks da área do trabalho.
+ *
+ * Cada implementação é determinística: a posição (quantos chunks já foram
+ * emitidos) basta para retomar o trabalho, reproduzindo a sequência até ali.
+ * Os chunks são devolvidos empacotados com {@link ChunkUnloader#key}.
+ */
+interface FillTraversal {
+    boolean hasNext();
+
+    long next();
+
+    /** Quantos chunks já foram emitidos. */
+    int position();
+
+    enum Order {
+        /** Coluna a coluna (X fixo, Z crescente), a ordem original. */
+        COLUMN,
+        /** Termina cada região de 32x32 chunks (.mcr) antes de passar à próxima. */
+        REGION,
+        /** Do centro da área para fora, em espiral quadrada. */
+        SPIRAL;
+
+        FillTraversal create(int minX, int maxX, int minZ, int maxZ) {
+            switch (this) {
+                case REGION: return new RegionTraversal(minX, maxX, minZ, maxZ);
+                case SPIRAL: return new SpiralTraversal(minX, maxX, minZ, maxZ);
+                default: return new ColumnTraversal(minX, maxX, minZ, maxZ);
+            }
+        }
+
+        static Order parse(String name, Order def) {
+            if (name == null) return def;
+            for (Order o : values())
+                if (o.name().equalsIgnoreCase(name.trim())) return o;
+            return def;
+        }
+    }
+
+    final class ColumnTraversal implements FillTraversal {
+        private final int maxX, minZ, maxZ;
+        private int x, z, position = 0;
+
+        ColumnTraversal(int minX, int maxX, int minZ, int maxZ) {
+            this.maxX = maxX;
+            this.minZ = minZ;
+            this.maxZ = maxZ;
+            this.x = minX;
+            this.z = minZ;
+        }
+
+        public boolean hasNext() { return this.x <= this.maxX && this.minZ <= this.maxZ; }
+
+        public long next() {
+            long k = ChunkUnloader.key(this.x, this.z);
+            if (++this.z > this.maxZ) {
+                this.z = this.minZ;
+                this.x++;
+            }
+            this.position++;
+            return k;
+        }
+
+        public int position() { return this.position; }
+    }
+
+    final class RegionTraversal implements FillTraversal {
+        private static final int REGION_SHIFT = 5; // 32 chunks por região
+        private final int minX, maxX, minZ, maxZ, maxRegionX, maxRegionZ, minRegionZ;
+        private int regionX, regionZ, x, z, position = 0;
+
+        RegionTraversal(int minX, int maxX, int minZ, int maxZ) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minZ = minZ;
+            this.maxZ = maxZ;
+            this.regionX = minX >> REGION_SHIFT;
+            this.minRegionZ = minZ >> REGION_SHIFT;
+            this.regionZ = this.minRegionZ;
+            this.maxRegionX = maxX >> REGION_SHIFT;
+            this.maxRegionZ = maxZ >> REGION_SHIFT;
+            enterRegion();
+        }
+
+        private int tileMinX() { return Math.max(this.minX, this.regionX << REGION_SHIFT); }
+        private int tileMaxX() { return Math.min(this.maxX, ((this.regionX + 1) << REGION_SHIFT) - 1); }
+        private int tileMinZ() { return Math.max(this.minZ, this.regionZ << REGION_SHIFT); }
+        private int tileMaxZ() { return Math.min(this.maxZ, ((this.regionZ + 1) << REGION_SHIFT) - 1); }
+
+        private void enterRegion() {
+            this.x = tileMinX();
+            this.z = tileMinZ();
+        }
+
+        public boolean hasNext() { return this.regionX <= this.maxRegionX && this.minZ <= this.maxZ; }
+
+        public long next() {
+            long k = ChunkUnloader.key(this.x, this.z);
+            if (++this.z > tileMaxZ()) {
+                this.z = tileMinZ();
+                if (++this.x > tileMaxX()) {
+                    if (++this.regionZ > this.maxRegionZ) {
+                        this.regionZ = this.minRegionZ;
+                        this.regionX++;
+                    }
+                    enterRegion();
+                }
+            }
+            this.position++;
+            return k;
+        }
+
+        public int position() { return this.position; }
+    }
+
+    final class SpiralTraversal implements FillTraversal {
+        private static final int[] DX = { 1, 0, -1, 0 };
+        private static final int[] DZ = { 0, 1, 0, -1 };
+        private final int minX, maxX, minZ, maxZ;
+        private final long total;
+        private int x, z, dir = 0, legLength = 1, legStep = 0, legsAtLength = 0, position = 0;
+
+        SpiralTraversal(int minX, int maxX, int minZ, int maxZ) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minZ = minZ;
+            this.maxZ = maxZ;
+            this.total = Math.max(0L, (long)(maxX - minX + 1) * (maxZ - minZ + 1));
+            this.x = minX + (maxX - minX) / 2;
+            this.z = minZ + (maxZ - minZ) / 2;
+        }
+
+        private boolean inside() {
+            return this.x >= this.minX && this.x <= this.maxX && this.z >= this.minZ && this.z <= this.maxZ;
+        }
+
+        /** Anda uma casa na espiral quadrada (pernas de 1, 1, 2, 2, 3, 3...). */
+        private void advance() {
+            this.x += DX[this.dir];
+            this.z += DZ[this.dir];
+            if (++this.legStep == this.legLength) {
+                this.legStep = 0;
+                this.dir = (this.dir + 1) & 3;
+                if (++this.legsAtLength == 2) {
+                    this.legsAtLength = 0;
+                    this.legLength++;
+                }
+            }
+        }
+
+        public boolean hasNext() { return this.position < this.total; }
+
+        public long next() {
+            long k = ChunkUnloader.key(this.x, this.z);
+            this.position++;
+            if (this.position < this.total) {
+                // Quando a área não é quadrada, parte da espiral cai fora dela.
+                do { advance(); } while (!inside());
+            }
+            return k;
+        }
+
+        public int position() { return this.position; }
+    }
+}
@@ -0,0 +1,103 @@
+package com.blockycraft.blockyborder;
+
+import java.util.UUID;
+
+/**
+ * Tabela de endereçamento aberto, sem boxing, do UUID do jogador para o tick
+ * em que a carência pós-teleporte expira. O UUID é guardado como duas metades
+ * long, então a busca não aloca; ao contrário do id de entidade, ele não muda
+ * quando o jogador renasce ou troca de mundo. Entradas vencidas não precisam
+ * ser varridas: basta comparar com o tick atual. São removidas quando o
+ * jogador sai do servidor.
+ */
+final class GraceTable {
+    private long[] most, least, expires;
+    private boolean[] used;
+    private int size = 0;
+
+    GraceTable() {
+        this(64);
+    }
+
+    GraceTable(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.most = new long[cap];
+        this.least = new long[cap];
+        this.expires = new long[cap];
+        this.used = new boolean[cap];
+    }
+
+    private static int mix(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /** Tick em que a carência do jogador expira, ou 0 se não houver. */
+    long expiresAt(UUID id) {
+        return expiresAt(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    long expiresAt(long most, long least) {
+        int mask = this.used.length - 1;
+        for (int i = mix(most, least) & mask; this.used[i]; i = (i + 1) & mask)
+            if (this.most[i] == most && this.least[i] == least) return this.expires[i];
+        return 0L;
+    }
+
+    void put(UUID id, long expiresAtTick) {
+        put(id.getMostSignificantBits(), id.getLeastSignificantBits(), expiresAtTick);
+    }
+
+    void put(long most, long least, long expiresAtTick) {
+        if ((this.size + 1) * 2 > this.used.length) grow();
+        int mask = this.used.length - 1;
+        int i = mix(most, least) & mask;
+        for (; this.used[i]; i = (i + 1) & mask) {
+            if (this.most[i] == most && this.least[i] == least) {
+                this.expires[i] = expiresAtTick;
+                return;
+            }
+        }
+        this.used[i] = true;
+        this.most[i] = most;
+        this.least[i] = least;
+        this.expires[i] = expiresAtTick;
+        this.size++;
+    }
+
+    void remove(UUID id) {
+        long most = id.getMostSignificantBits(), least = id.getLeastSignificantBits();
+        int mask = this.used.length - 1;
+        int i = mix(most, least) & mask;
+        while (this.used[i] && (this.most[i] != most || this.least[i] != least))
+            i = (i + 1) & mask;
+        if (!this.used[i]) return;
+        // Remoção com deslocamento para trás, para não deixar lápides.
+        for (int j = (i + 1) & mask; this.used[j]; j = (j + 1) & mask) {
+            int home = mix(this.most[j], this.least[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                this.most[i] = this.most[j];
+                this.least[i] = this.least[j];
+                this.expires[i] = this.expires[j];
+                i = j;
+            }
+        }
+        this.used[i] = false;
+        this.size--;
+    }
+
+    int size() { return this.size; }
+
+    private void grow() {
+        long[] oldMost = this.most, oldLeast = this.least, oldExpires = this.expires;
+        boolean[] oldUsed = this.used;
+        int cap = oldUsed.length * 2;
+        this.most = new long[cap];
+        this.least = new long[cap];
+        this.expires = new long[cap];
+        this.used = new boolean[cap];
+        this.size = 0;
+        for (int i = 0; i < oldUsed.length; i++)
+            if (oldUsed[i]) put(oldMost[i], oldLeast[i], oldExpires[i]);
+    }
+}
@@ -0,0 +1,34 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Histerese simples sobre o uso do heap: pausa quando passa da marca alta e
+ * só libera de novo quando o uso cai abaixo da marca baixa.
+ */
+class HeapWatermarks {
+    private final double high, low;
+    private boolean paused = false;
+
+    HeapWatermarks(double high, double low) {
+        this.high = high;
+        this.low = Math.min(low, high);
+    }
+
+    public static double usedRatio() {
+        Runtime rt = Runtime.getRuntime();
+        return (double)(rt.totalMemory() - rt.freeMemory()) / rt.maxMemory();
+    }
+
+    /** Reavalia o uso atual e devolve se a geração deve ficar pausada. */
+    public boolean update() {
+        double used = usedRatio();
+        if (!this.paused && used >= this.high) this.paused = true;
+        else if (this.paused && used <= this.low) this.paused = false;
+        return this.paused;
+    }
+
+    public boolean isPaused() { return this.paused; }
+
+    public double getHigh() { return this.high; }
+
+    public double getLow() { return this.low; }
+}
@@ -0,0 +1,66 @@
+package com.blockycraft.blockyborder;
+
+import java.util.Arrays;
+
+/**
+ * Histograma de durações em nanossegundos, com baldes log-lineares: cada
+ * potência de 2 é dividida em 8 baldes, então o percentil devolvido erra no
+ * máximo 12,5% para cima. {@link #record} é só um índice e um incremento,
+ * sem alocação. Não é thread-safe: registre e leia na thread principal.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0, sum = 0, max = 0;
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        this.counts[bucket(nanos)]++;
+        this.count++;
+        this.sum += nanos;
+        if (nanos > this.max) this.max = nanos;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) return (int)value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /** Maior valor que cai no balde. */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int exp = bucket / SUB_COUNT + SUB_BITS - 1, sub = bucket % SUB_COUNT;
+        long width = 1L << (exp - SUB_BITS);
+        return ((long)(SUB_COUNT + sub) << (exp - SUB_BITS)) + width - 1;
+    }
+
+    /** Valor abaixo do qual estão {@code fraction} das amostras (0.5, 0.95, 0.99...). */
+    long percentile(double fraction) {
+        if (this.count == 0) return 0;
+        long rank = Math.max(1L, (long)Math.ceil(fraction * this.count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), this.max);
+        }
+        return this.max;
+    }
+
+    long count() { return this.count; }
+
+    long max() { return this.max; }
+
+    double mean() { return this.count == 0 ? 0.0D : (double)this.sum / this.count; }
+
+    void reset() {
+        Arrays.fill(this.counts, 0L);
+        this.count = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Grava os retratos de métricas em CSV, fora da thread principal.
+ *
+ * Um arquivo por dia em {@code metrics/metrics-AAAA-MM-DD.csv}, com cabeçalho
+ * na primeira linha; arquivos mais antigos que {@code keepDays} são apagados.
+ * A thread principal só chama {@link #offer}; {@link #run} (tarefa
+ * assíncrona) grava todas as linhas pendentes.
+ */
+class MetricsCsvLog implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    private static final String PREFIX = "metrics-", SUFFIX = ".csv";
+
+    private final File dir;
+    private final int keepDays;
+    private final ConcurrentLinkedQueue<PluginMetrics.Snapshot> pending = new ConcurrentLinkedQueue<>();
+    private final SimpleDateFormat day = new SimpleDateFormat("yyyy-MM-dd");
+    private String lastDay;
+
+    MetricsCsvLog(File dir, int keepDays) {
+        this.dir = dir;
+        this.keepDays = keepDays;
+    }
+
+    public void offer(PluginMetrics.Snapshot snapshot) { this.pending.add(snapshot); }
+
+    public synchronized void run() {
+        PluginMetrics.Snapshot s;
+        while ((s = this.pending.poll()) != null) {
+            String name = this.day.format(new Date(s.time));
+            File file = new File(this.dir, PREFIX + name + SUFFIX);
+            try {
+                this.dir.mkdirs();
+                boolean fresh = !file.exists();
+                try (Writer out = new OutputStreamWriter(Files.newOutputStream(file.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8)) {
+                    if (fresh) out.write(PluginMetrics.Snapshot.CSV_HEADER + "\n");
+                    out.write(s.toCsvRow() + "\n");
+                }
+            } catch (IOException e) {
+                LOG.warning("[BlockyBorder] Falha ao gravar métricas em " + file.getName() + ": " + e.getMessage());
+            }
+            if (!name.equals(this.lastDay)) {
+                this.lastDay = name;
+                prune();
+            }
+        }
+    }
+
+    /** Apaga os arquivos além dos {@code keepDays} mais recentes. */
+    private void prune() {
+        String[] names = this.dir.list();
+        if (names == null) return;
+        Arrays.sort(names); // a data no nome ordena cronologicamente
+        int files = 0;
+        for (String n : names)
+            if (n.startsWith(PREFIX) && n.endsWith(SUFFIX)) files++;
+        for (String n : names) {
+            if (files <= this.keepDays) break;
+            if (!n.startsWith(PREFIX) || !n.endsWith(SUFFIX)) continue;
+            new File(this.dir, n).delete();
+            files--;
+        }
+    }
+}
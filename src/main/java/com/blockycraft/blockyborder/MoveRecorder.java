@@ -0,0 +1,168 @@
+package com.blockycraft.blockyborder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.bukkit.Location;
+
+/**
+ * Grava os PlayerMoveEvent do servidor (jogador, tick, origem e destino)
+ * para serem reproduzidos fora dele pelo ReplayHarness do módulo de
+ * benchmarks. Ligado por {@code /border record} ou {@code trace-record=true}.
+ *
+ * Como o {@link ChunkChangelog}, a thread principal só escreve num buffer e
+ * {@link #run} (tarefa assíncrona) grava no arquivo. Formato: {@link #MAGIC},
+ * versão, e uma sequência de registros: {@link #WORLD} (id, nome), na
+ * primeira vez que um mundo aparece, e {@link #MOVE} (UUID do jogador em
+ * dois longs, tick, id do mundo, x/y/z de origem e de destino). O jogador vai
+ * pelo UUID, como no {@link GraceTable}: o id de entidade muda quando ele
+ * renasce ou troca de mundo. Traces da versão 1 (com o id de entidade) ainda
+ * são lidos, com o id no lugar da metade baixa do UUID.
+ */
+class MoveRecorder implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    static final int MAGIC = 0x42425452; // "BBTR"
+    static final int VERSION = 2;
+    static final byte WORLD = 0, MOVE = 1;
+
+    /** Recebe os movimentos lidos, na ordem em que foram gravados. */
+    interface Visitor {
+        void move(long playerMost, long playerLeast, long tick, String world, double fromX, double fromY, double fromZ, double toX, double toY, double toZ);
+    }
+
+    private final File file;
+    private final Object lock = new Object();
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private DataOutputStream out = new DataOutputStream(this.buffer);
+    private volatile long moves = 0;
+    private boolean closed = false;
+
+    MoveRecorder(File file) throws IOException {
+        this.file = file;
+        file.getParentFile().mkdirs();
+        try (DataOutputStream header = new DataOutputStream(new FileOutputStream(file))) {
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+        }
+    }
+
+    /** Só na thread principal; não toca o disco. */
+    public void record(UUID player, long tick, Location from, Location to) {
+        synchronized (this.lock) {
+            try {
+                String world = to.getWorld().getName();
+                Integer id = this.worldIds.get(world);
+                if (id == null) {
+                    id = this.worldIds.size();
+                    this.worldIds.put(world, id);
+                    this.out.writeByte(WORLD);
+                    this.out.writeShort(id);
+                    this.out.writeUTF(world);
+                }
+                this.out.writeByte(MOVE);
+                this.out.writeLong(player.getMostSignificantBits());
+                this.out.writeLong(player.getLeastSignificantBits());
+                this.out.writeLong(tick);
+                this.out.writeShort(id);
+                this.out.writeDouble(from.getX());
+                this.out.writeDouble(from.getY());
+                this.out.writeDouble(from.getZ());
+                this.out.writeDouble(to.getX());
+                this.out.writeDouble(to.getY());
+                this.out.writeDouble(to.getZ());
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // ByteArrayOutputStream não falha
+            }
+            this.moves++;
+        }
+    }
+
+    public void run() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOG.warning("[BlockyBorder] Falha ao gravar o trace de movimentos: " + e.getMessage());
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        byte[] bytes;
+        synchronized (this.lock) {
+            if (this.buffer.size() == 0 || this.closed) return;
+            bytes = this.buffer.toByteArray();
+            this.buffer = new ByteArrayOutputStream(64 * 1024);
+            this.out = new DataOutputStream(this.buffer);
+        }
+        try (FileOutputStream f = new FileOutputStream(this.file, true)) {
+            f.write(bytes);
+        }
+    }
+
+    /** Grava o que falta; depois disso a tarefa assíncrona não escreve mais nada. */
+    public synchronized void close() throws IOException {
+        flush();
+        synchronized (this.lock) {
+            this.closed = true;
+        }
+    }
+
+    public File getFile() { return this.file; }
+
+    public long getMoves() { return this.moves; }
+
+    /**
+     * Lê um trace gravado e devolve quantos movimentos havia. Um registro
+     * cortado no fim (servidor caiu gravando) é ignorado.
+     */
+    static long read(File file, Visitor visitor) throws IOException {
+        List<String> worlds = new ArrayList<>();
+        long n = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(file.getName() + " não é um trace do BlockyBorder");
+            int version = in.readShort();
+            if (version != VERSION && version != 1) throw new IOException(file.getName() + ": versão " + version + " não suportada");
+            while (true) {
+                int type;
+                try {
+                    type = in.readByte();
+                    if (type == WORLD) {
+                        int id = in.readShort();
+                        String name = in.readUTF();
+                        while (worlds.size() <= id) worlds.add(null);
+                        worlds.set(id, name);
+                        continue;
+                    }
+                    if (type != MOVE) throw new IOException(file.getName() + ": registro desconhecido " + type);
+                    long most = 0L, least;
+                    if (version == 1) {
+                        least = in.readInt();
+                    } else {
+                        most = in.readLong();
+                        least = in.readLong();
+                    }
+                    long tick = in.readLong();
+                    int world = in.readShort();
+                    double fx = in.readDouble(), fy = in.readDouble(), fz = in.readDouble();
+                    double tx = in.readDouble(), ty = in.readDouble(), tz = in.readDouble();
+                    visitor.move(most, least, tick, worlds.get(world), fx, fy, fz, tx, ty, tz);
+                    n++;
+                } catch (EOFException e) {
+                    return n;
+                }
+            }
+        }
+    }
+}
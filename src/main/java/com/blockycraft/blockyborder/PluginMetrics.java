@@ -0,0 +1,151 @@
+package com.blockycraft.blockyborder;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Métricas do plugin: tempo de getChunkAt e dos populators por chunk do /fill,
+ * quanto o /fill acrescenta a cada tick, chunks por segundo, ETA, teleportes
+ * do wrap e custo da checagem no PlayerMoveEvent.
+ *
+ * Tudo é registrado na thread principal. A cada intervalo {@link #roll} fecha
+ * os histogramas num {@link Snapshot}, que não muda depois de publicado por um
+ * campo volatile; é dele que o /fill status, o JMX e o CSV leem.
+ */
+class PluginMetrics implements FillMetricsMBean, BorderMetricsMBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0D;
+
+    /** Retrato de um intervalo de métricas. */
+    static final class Snapshot {
+        static final String CSV_HEADER = "time,interval_s,active_jobs,chunks_done,chunks_total,chunks_per_s,eta_s,"
+            + "getchunk_p50_ms,getchunk_p95_ms,getchunk_p99_ms,populate_p50_ms,populate_p95_ms,populate_p99_ms,"
+            + "tick_cost_mean_ms,tick_cost_p99_ms,tick_cost_max_ms,tps,checks_per_s,check_p50_ns,check_p99_ns,teleports_per_min,heap_used";
+        static final Snapshot EMPTY = new Snapshot();
+
+        long time;
+        double intervalSeconds;
+        int activeJobs;
+        long chunksDone, chunksTotal, etaSeconds = -1;
+        double chunksPerSecond;
+        double getChunkP50, getChunkP95, getChunkP99, populateP50, populateP95, populateP99; // ms
+        double tickCostMean, tickCostP99, tickCostMax; // ms
+        double tps, checksPerSecond, teleportsPerMinute, heapUsed;
+        long checkP50, checkP99; // ns
+        long teleportsTotal;
+
+        String toCsvRow() {
+            return String.format(Locale.ROOT, "%d,%.1f,%d,%d,%d,%.2f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.2f,%.1f,%d,%d,%.2f,%.3f",
+                this.time, this.intervalSeconds, this.activeJobs, this.chunksDone, this.chunksTotal, this.chunksPerSecond, this.etaSeconds,
+                this.getChunkP50, this.getChunkP95, this.getChunkP99, this.populateP50, this.populateP95, this.populateP99,
+                this.tickCostMean, this.tickCostP99, this.tickCostMax, this.tps, this.checksPerSecond, this.checkP50, this.checkP99,
+                this.teleportsPerMinute, this.heapUsed);
+        }
+    }
+
+    private final LatencyHistogram getChunk = new LatencyHistogram(), populate = new LatencyHistogram(), fillTick = new LatencyHistogram();
+    private long fillChunks = 0, lastFillChunks = 0, lastChecks = 0, lastTeleports = 0, lastRollNanos = 0;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** Um chunk gerado pelo /fill: carregar/gerar e popular, medidos separadamente. */
+    void recordChunk(long getChunkNanos, long populateNanos) {
+        this.getChunk.record(getChunkNanos);
+        this.populate.record(populateNanos);
+        this.fillChunks++;
+    }
+
+    /** Tempo que a tarefa do /fill ocupou num tick. */
+    void recordFillTick(long nanos) { this.fillTick.record(nanos); }
+
+    Snapshot getSnapshot() { return this.snapshot; }
+
+    /** Fecha o intervalo atual; chamado periodicamente na thread principal. */
+    Snapshot roll(long nowNanos, List<FillStepTask> jobs, BorderPlayerListener listener, double tps) {
+        Snapshot s = new Snapshot();
+        s.time = System.currentTimeMillis();
+        double seconds = this.lastRollNanos == 0 ? 0.0D : (nowNanos - this.lastRollNanos) / 1_000_000_000.0D;
+        s.intervalSeconds = seconds;
+        s.activeJobs = jobs.size();
+        for (FillStepTask job : jobs) {
+            job.getRate().roll(nowNanos);
+            long remaining = job.getState().total - job.getDone();
+            s.chunksDone += job.getDone();
+            s.chunksTotal += job.getState().total;
+            double rate = job.getRate().perSecond();
+            // Os trabalhos rodam juntos: termina tudo quando o mais lento terminar.
+            if (remaining > 0 && rate > 0)
+                s.etaSeconds = Math.max(s.etaSeconds, (long)Math.ceil(remaining / rate));
+        }
+        long checks = listener.getChecks().total(), teleports = listener.getTeleports().total();
+        if (seconds > 0) {
+            s.chunksPerSecond = (this.fillChunks - this.lastFillChunks) / seconds;
+            s.checksPerSecond = (checks - this.lastChecks) / seconds;
+            s.teleportsPerMinute = (teleports - this.lastTeleports) * 60.0D / seconds;
+        }
+        s.getChunkP50 = this.getChunk.percentile(0.50) / NANOS_PER_MILLI;
+        s.getChunkP95 = this.getChunk.percentile(0.95) / NANOS_PER_MILLI;
+        s.getChunkP99 = this.getChunk.percentile(0.99) / NANOS_PER_MILLI;
+        s.populateP50 = this.populate.percentile(0.50) / NANOS_PER_MILLI;
+        s.populateP95 = this.populate.percentile(0.95) / NANOS_PER_MILLI;
+        s.populateP99 = this.populate.percentile(0.99) / NANOS_PER_MILLI;
+        s.tickCostMean = this.fillTick.mean() / NANOS_PER_MILLI;
+        s.tickCostP99 = this.fillTick.percentile(0.99) / NANOS_PER_MILLI;
+        s.tickCostMax = this.fillTick.max() / NANOS_PER_MILLI;
+        s.tps = tps;
+        LatencyHistogram checkCost = listener.getCheckCost();
+        s.checkP50 = checkCost.percentile(0.50);
+        s.checkP99 = checkCost.percentile(0.99);
+        s.teleportsTotal = teleports;
+        s.heapUsed = HeapWatermarks.usedRatio();
+
+        this.getChunk.reset();
+        this.populate.reset();
+        this.fillTick.reset();
+        checkCost.reset();
+        this.lastFillChunks = this.fillChunks;
+        this.lastChecks = checks;
+        this.lastTeleports = teleports;
+        this.lastRollNanos = nowNanos;
+        this.snapshot = s;
+        return s;
+    }
+
+    public int getActiveJobs() { return this.snapshot.activeJobs; }
+
+    public long getChunksDone() { return this.snapshot.chunksDone; }
+
+    public long getChunksTotal() { return this.snapshot.chunksTotal; }
+
+    public double getChunksPerSecond() { return this.snapshot.chunksPerSecond; }
+
+    public long getEtaSeconds() { return this.snapshot.etaSeconds; }
+
+    public double getGetChunkP50Millis() { return this.snapshot.getChunkP50; }
+
+    public double getGetChunkP95Millis() { return this.snapshot.getChunkP95; }
+
+    public double getGetChunkP99Millis() { return this.snapshot.getChunkP99; }
+
+    public double getPopulateP50Millis() { return this.snapshot.populateP50; }
+
+    public double getPopulateP95Millis() { return this.snapshot.populateP95; }
+
+    public double getPopulateP99Millis() { return this.snapshot.populateP99; }
+
+    public double getTickCostMeanMillis() { return this.snapshot.tickCostMean; }
+
+    public double getTickCostP99Millis() { return this.snapshot.tickCostP99; }
+
+    public double getTickCostMaxMillis() { return this.snapshot.tickCostMax; }
+
+    public double getTps() { return this.snapshot.tps; }
+
+    public double getChecksPerSecond() { return this.snapshot.checksPerSecond; }
+
+    public long getCheckCostP50Nanos() { return this.snapshot.checkP50; }
+
+    public long getCheckCostP99Nanos() { return this.snapshot.checkP99; }
+
+    public double getTeleportsPerMinute() { return this.snapshot.teleportsPerMinute; }
+
+    public long getTeleportsTotal() { return this.snapshot.teleportsTotal; }
+}
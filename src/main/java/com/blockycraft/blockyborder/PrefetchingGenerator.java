@@ -0,0 +1,91 @@
+package com.blockycraft.blockyborder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Random;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.ChunkGenerator;
+
+/**
+ * Gerador que se põe no lugar do gerador customizado do mundo enquanto um
+ * {@link ChunkPipeline} está ativo: entrega o terreno já calculado pelas
+ * threads de trabalho e, para chunks não encomendados, chama o original.
+ *
+ * A API do Bukkit não deixa trocar o gerador de um mundo carregado, então a
+ * troca é feita por reflexão: a partir do handle do CraftWorld, seguimos os
+ * campos cujo tipo é um ChunkProvider até achar o campo que guarda o gerador
+ * original (no CraftBukkit, CustomChunkGenerator.generator). Se a estrutura
+ * não for a esperada, {@link #install} devolve null e o /fill segue serial.
+ */
+class PrefetchingGenerator extends ChunkGenerator {
+    private static final int SEARCH_DEPTH = 3;
+
+    private final ChunkGenerator original;
+    private final ChunkPipeline pipeline;
+    private Object owner;
+    private Field field;
+
+    private PrefetchingGenerator(ChunkPipeline pipeline) {
+        this.original = pipeline.getGenerator();
+        this.pipeline = pipeline;
+    }
+
+    public byte[] generate(World world, Random random, int x, int z) {
+        byte[] blocks = this.pipeline.take(x, z);
+        return blocks != null ? blocks : this.original.generate(world, random, x, z);
+    }
+
+    public boolean canSpawn(World world, int x, int z) { return this.original.canSpawn(world, x, z); }
+
+    public List<BlockPopulator> getDefaultPopulators(World world) { return this.original.getDefaultPopulators(world); }
+
+    public Location getFixedSpawnLocation(World world, Random random) { return this.original.getFixedSpawnLocation(world, random); }
+
+    /** Instala o gerador no mundo do pipeline; null se não foi possível. */
+    static PrefetchingGenerator install(ChunkPipeline pipeline) {
+        PrefetchingGenerator wrapper = new PrefetchingGenerator(pipeline);
+        try {
+            Object handle = pipeline.getWorld().getClass().getMethod("getHandle").invoke(pipeline.getWorld());
+            if (!wrapper.find(handle, SEARCH_DEPTH)) return null;
+            wrapper.field.set(wrapper.owner, wrapper);
+            return wrapper;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Devolve o gerador original ao mundo. */
+    void uninstall() {
+        try {
+            if (this.field.get(this.owner) == this)
+                this.field.set(this.owner, this.original);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean find(Object obj, int depth) throws IllegalAccessException {
+        for (Class<?> c = obj.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                Class<?> type = f.getType();
+                if (ChunkGenerator.class.isAssignableFrom(type)) {
+                    f.setAccessible(true);
+                    if (f.get(obj) == this.original) {
+                        this.owner = obj;
+                        this.field = f;
+                        return true;
+                    }
+                } else if (depth > 0 && type.getSimpleName().contains("ChunkProvider")) {
+                    f.setAccessible(true);
+                    Object next = f.get(obj);
+                    if (next != null && next != obj && find(next, depth - 1)) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Contador de eventos com taxa por segundo. {@link #mark} é só um incremento;
+ * a taxa é recalculada por {@link #roll}, chamado periodicamente.
+ * Não é thread-safe: use numa única thread (a principal).
+ */
+final class RateCounter {
+    private long count = 0, lastCount = 0, lastNanos = 0;
+    private double perSecond = 0.0D;
+
+    void mark() { this.count++; }
+
+    void roll(long nowNanos) {
+        if (this.lastNanos != 0 && nowNanos > this.lastNanos)
+            this.perSecond = (this.count - this.lastCount) * 1_000_000_000.0D / (nowNanos - this.lastNanos);
+        this.lastCount = this.count;
+        this.lastNanos = nowNanos;
+    }
+
+    long total() { return this.count; }
+
+    double perSecond() { return this.perSecond; }
+}
@@ -0,0 +1,148 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Lê só os cabeçalhos dos arquivos region/*.mcr que cruzam a área do
+ * trabalho para descobrir quais chunks já existem em disco.
+ *
+ * Feito para rodar fora da thread principal: não toca em nenhuma API do
+ * Bukkit, usa leituras posicionais com NIO e só lê os 8 KB de localização e
+ * timestamps de cada região, mais os 5 bytes de cabeçalho de cada chunk
+ * presente (para validar o tamanho declarado).
+ */
+class RegionScanner implements Runnable {
+    static final int SECTOR_BYTES = 4096;
+    static final int HEADER_BYTES = 2 * SECTOR_BYTES; // localizações + timestamps
+    private static final int MAX_REPORTED_PROBLEMS = 50;
+
+    private final File regionDir;
+    private final int minX, maxX, minZ, maxZ, height;
+    private final BitSet present; // índice: (x - minX) * height + (z - minZ)
+    private final List<String> problems = new ArrayList<>();
+    private int regionsRead = 0, corrupt = 0;
+    private volatile boolean finished = false;
+    private Runnable onFinish;
+
+    RegionScanner(File regionDir, int minX, int maxX, int minZ, int maxZ) {
+        this.regionDir = regionDir;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+        this.height = maxZ - minZ + 1;
+        this.present = new BitSet((maxX - minX + 1) * this.height);
+    }
+
+    /**
+     * Localiza a pasta region de um mundo. Mundos do nether criados pelo
+     * servidor vanilla guardam as regiões em DIM-1/region.
+     */
+    static File findRegionDir(File worldDir) {
+        File dir = new File(worldDir, "region");
+        if (dir.isDirectory()) return dir;
+        File nether = new File(worldDir, "DIM-1" + File.separator + "region");
+        return nether.isDirectory() ? nether : dir;
+    }
+
+    /** Chamado (na thread do scanner) quando a varredura termina. */
+    public void setOnFinish(Runnable onFinish) { this.onFinish = onFinish; }
+
+    public void run() {
+        try {
+            ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES);
+            ByteBuffer chunkHeader = ByteBuffer.allocateDirect(5);
+            for (int rx = this.minX >> 5; rx <= this.maxX >> 5; rx++) {
+                for (int rz = this.minZ >> 5; rz <= this.maxZ >> 5; rz++) {
+                    File file = new File(this.regionDir, "r." + rx + "." + rz + ".mcr");
+                    if (!file.isFile()) continue;
+                    try {
+                        scanRegion(file, rx, rz, header, chunkHeader);
+                        this.regionsRead++;
+                    } catch (IOException e) {
+                        problem(file.getName() + ": erro de leitura (" + e.getMessage() + ")");
+                    }
+                }
+            }
+        } finally {
+            this.finished = true;
+            if (this.onFinish != null) this.onFinish.run();
+        }
+    }
+
+    private void scanRegion(File file, int rx, int rz, ByteBuffer header, ByteBuffer chunkHeader) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length < HEADER_BYTES) {
+                problem(file.getName() + ": cabeçalho truncado (" + length + " bytes)");
+                return;
+            }
+            long sectors = (length + SECTOR_BYTES - 1) / SECTOR_BYTES;
+            header.clear();
+            while (header.hasRemaining() && ch.read(header, header.position()) > 0) {}
+            header.flip();
+
+            for (int i = 0; i < 1024; i++) {
+                int x = (rx << 5) + (i & 31), z = (rz << 5) + (i >> 5);
+                if (x < this.minX || x > this.maxX || z < this.minZ || z > this.maxZ) continue;
+                int location = header.getInt(i * 4);
+                if (location == 0) continue; // chunk nunca gerado
+                int offset = location >>> 8, count = location & 0xFF;
+                if (offset < 2 || count == 0) {
+                    corrupt(file, x, z, "entrada inválida (setor " + offset + ", " + count + " setores)");
+                    continue;
+                }
+                if (offset + count > sectors) {
+                    corrupt(file, x, z, "truncado (setores " + offset + "+" + count + " de " + sectors + ")");
+                    continue;
+                }
+                chunkHeader.clear();
+                ch.read(chunkHeader, (long)offset * SECTOR_BYTES);
+                chunkHeader.flip();
+                if (chunkHeader.remaining() < 5) {
+                    corrupt(file, x, z, "cabeçalho do chunk ilegível");
+                    continue;
+                }
+                int dataLength = chunkHeader.getInt(0);
+                byte compression = chunkHeader.get(4);
+                if (dataLength <= 1 || dataLength + 4 > count * SECTOR_BYTES || (compression != 1 && compression != 2)) {
+                    corrupt(file, x, z, "tamanho " + dataLength + " / compressão " + compression + " inválidos");
+                    continue;
+                }
+                this.present.set((x - this.minX) * this.height + (z - this.minZ));
+            }
+        }
+    }
+
+    private void corrupt(File file, int chunkX, int chunkZ, String what) {
+        this.corrupt++;
+        problem(file.getName() + " chunk " + chunkX + "," + chunkZ + ": " + what);
+    }
+
+    private void problem(String message) {
+        if (this.problems.size() < MAX_REPORTED_PROBLEMS) this.problems.add(message);
+    }
+
+    public boolean isFinished() { return this.finished; }
+
+    /** Chunks encontrados em disco (válidos). Só leia depois de {@link #isFinished()}. */
+    public BitSet getPresent() { return this.present; }
+
+    public int getRegionsRead() { return this.regionsRead; }
+
+    public int getCorrupt() { return this.corrupt; }
+
+    /** Até {@value #MAX_REPORTED_PROBLEMS} descrições de problemas encontrados. */
+    public List<String> getProblems() { return this.problems; }
+
+    public int indexToX(int index) { return this.minX + index / this.height; }
+
+    public int indexToZ(int index) { return this.minZ + index % this.height; }
+}
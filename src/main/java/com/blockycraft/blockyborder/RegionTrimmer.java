@@ -0,0 +1,244 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Tira dos arquivos region/*.mcr os chunks fora da borda (mais uma margem),
+ * numa thread separada, com leituras posicionais como o {@link RegionScanner}.
+ *
+ * Para cada região com algo a tirar, grava ao lado uma versão compactada,
+ * {@code r.X.Z.mcr.trim}: só os chunks mantidos, em setores contíguos, com os
+ * mesmos timestamps. O servidor mantém abertos os arquivos de região que já
+ * usou, então trocar o .mcr com ele rodando perderia as próximas gravações; a
+ * troca (rename atômico) é feita por {@link #applyPending} antes de os mundos
+ * carregarem, na próxima inicialização. O .trim leva a data de modificação do
+ * .mcr lido, e um .mcr modificado depois disso mantém a versão do servidor.
+ * Um .trim vazio quer dizer que não sobrou nenhum chunk: o .mcr é apagado.
+ *
+ * Regiões com chunks carregados quando o /trim começou são puladas. No modo
+ * de simulação nada é gravado; só os bytes que seriam liberados são somados.
+ */
+class RegionTrimmer implements Runnable {
+    private static final Logger LOG = Logger.getLogger("Minecraft");
+    static final String TRIM_SUFFIX = ".trim";
+    private static final int MAX_REPORTED_PROBLEMS = 50;
+
+    /** Se o chunk deve ficar. Chamado fora da thread principal: não pode usar o Bukkit. */
+    interface Keep {
+        boolean keep(int chunkX, int chunkZ);
+    }
+
+    private final File regionDir;
+    private final Keep keep;
+    private final Set<Long> skipRegions; // chaves de região (ChunkUnloader.key) com chunks carregados
+    private final boolean dryRun;
+    private final List<String> problems = new ArrayList<>();
+    private int regionsRead = 0, regionsTrimmed = 0, regionsSkipped = 0, chunksKept = 0, chunksRemoved = 0;
+    private long bytesBefore = 0, bytesAfter = 0;
+    private Runnable onFinish;
+
+    RegionTrimmer(File regionDir, Keep keep, Set<Long> skipRegions, boolean dryRun) {
+        this.regionDir = regionDir;
+        this.keep = keep;
+        this.skipRegions = skipRegions;
+        this.dryRun = dryRun;
+    }
+
+    /** Chamado (na thread do trim) quando termina. */
+    public void setOnFinish(Runnable onFinish) { this.onFinish = onFinish; }
+
+    public void run() {
+        try {
+            File[] files = this.regionDir.listFiles();
+            if (files == null) return;
+            ByteBuffer header = ByteBuffer.allocateDirect(RegionScanner.HEADER_BYTES);
+            for (File file : files) {
+                int[] coords = parseName(file.getName());
+                if (coords == null) continue;
+                if (this.skipRegions.contains(ChunkUnloader.key(coords[0], coords[1]))) {
+                    this.regionsSkipped++;
+                    continue;
+                }
+                try {
+                    trimRegion(file, coords[0], coords[1], header);
+                    this.regionsRead++;
+                } catch (IOException e) {
+                    problem(file.getName() + ": erro (" + e.getMessage() + "); região mantida como está");
+                    new File(file.getPath() + TRIM_SUFFIX).delete();
+                }
+            }
+        } finally {
+            if (this.onFinish != null) this.onFinish.run();
+        }
+    }
+
+    private void trimRegion(File file, int rx, int rz, ByteBuffer header) throws IOException {
+        long modified = file.lastModified();
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = in.size();
+            if (length < RegionScanner.HEADER_BYTES) {
+                problem(file.getName() + ": cabeçalho truncado; região mantida como está");
+                return;
+            }
+            header.clear();
+            while (header.hasRemaining() && in.read(header, header.position()) > 0) {}
+            header.flip();
+
+            // Primeiro passo: o que fica, e quantos setores cada chunk ocupa de fato.
+            int[] sectorsOf = new int[1024];
+            int kept = 0, removed = 0, keptSectors = 0;
+            ByteBuffer chunkHeader = ByteBuffer.allocate(5);
+            for (int i = 0; i < 1024; i++) {
+                int location = header.getInt(i * 4);
+                if (location == 0) continue;
+                if (!this.keep.keep((rx << 5) + (i & 31), (rz << 5) + (i >> 5))) {
+                    removed++;
+                    continue;
+                }
+                int offset = location >>> 8, count = location & 0xFF;
+                chunkHeader.clear();
+                in.read(chunkHeader, (long)offset * RegionScanner.SECTOR_BYTES);
+                int dataLength = chunkHeader.position() == 5 ? chunkHeader.getInt(0) : -1;
+                if (offset < 2 || count == 0 || dataLength <= 1 || dataLength + 4 > count * RegionScanner.SECTOR_BYTES
+                        || (long)offset * RegionScanner.SECTOR_BYTES + dataLength + 4 > length) {
+                    // Um chunk mantido que não conseguimos copiar: melhor não mexer na região.
+                    problem(file.getName() + ": chunk " + ((rx << 5) + (i & 31)) + "," + ((rz << 5) + (i >> 5))
+                        + " dentro da borda está corrompido; região mantida como está");
+                    return;
+                }
+                sectorsOf[i] = (dataLength + 4 + RegionScanner.SECTOR_BYTES - 1) / RegionScanner.SECTOR_BYTES;
+                keptSectors += sectorsOf[i];
+                kept++;
+            }
+            this.chunksKept += kept;
+            if (removed == 0) return;
+            long newLength = kept == 0 ? 0 : RegionScanner.HEADER_BYTES + (long)keptSectors * RegionScanner.SECTOR_BYTES;
+            if (!this.dryRun) write(file, in, header, sectorsOf, kept, modified);
+            this.chunksRemoved += removed;
+            this.regionsTrimmed++;
+            this.bytesBefore += length;
+            this.bytesAfter += newLength;
+        }
+    }
+
+    private static void write(File file, FileChannel in, ByteBuffer header, int[] sectorsOf, int kept, long modified) throws IOException {
+        File tmp = new File(file.getPath() + TRIM_SUFFIX + ".tmp"), trim = new File(file.getPath() + TRIM_SUFFIX);
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (kept > 0) copyKept(in, out, header, sectorsOf);
+            out.force(true);
+        }
+        Files.move(tmp.toPath(), trim.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        trim.setLastModified(modified);
+    }
+
+    /** Segundo passo: cabeçalho novo e os setores dos chunks mantidos, em sequência. */
+    private static void copyKept(FileChannel in, FileChannel out, ByteBuffer header, int[] sectorsOf) throws IOException {
+        ByteBuffer newHeader = ByteBuffer.allocate(RegionScanner.HEADER_BYTES);
+        ByteBuffer data = ByteBuffer.allocate(255 * RegionScanner.SECTOR_BYTES);
+        int next = 2;
+        long pos = RegionScanner.HEADER_BYTES;
+        for (int i = 0; i < 1024; i++) {
+            if (sectorsOf[i] == 0) continue;
+            int count = sectorsOf[i];
+            data.clear();
+            data.limit(count * RegionScanner.SECTOR_BYTES);
+            long from = (long)(header.getInt(i * 4) >>> 8) * RegionScanner.SECTOR_BYTES;
+            while (data.hasRemaining()) {
+                int n = in.read(data, from + data.position());
+                if (n < 0) break; // último setor do arquivo pode não estar completo: o resto fica zerado
+            }
+            while (data.hasRemaining()) data.put((byte)0);
+            data.flip();
+            while (data.hasRemaining()) pos += out.write(data, pos);
+            newHeader.putInt(i * 4, next << 8 | count);
+            newHeader.putInt(RegionScanner.SECTOR_BYTES + i * 4, header.getInt(RegionScanner.SECTOR_BYTES + i * 4));
+            next += count;
+        }
+        newHeader.clear();
+        while (newHeader.hasRemaining()) out.write(newHeader, newHeader.position());
+    }
+
+    /**
+     * Troca cada .mcr pelo seu .trim, se o .mcr não mudou desde o trim.
+     * Só pode rodar com a região fechada, antes de o mundo carregar.
+     */
+    static void applyPending(File regionDir) {
+        File[] files = regionDir.listFiles();
+        if (files == null) return;
+        int applied = 0, stale = 0;
+        for (File trim : files) {
+            String name = trim.getName();
+            if (name.endsWith(TRIM_SUFFIX + ".tmp")) {
+                trim.delete(); // sobra de um /trim interrompido
+                continue;
+            }
+            if (!name.endsWith(TRIM_SUFFIX)) continue;
+            File region = new File(regionDir, name.substring(0, name.length() - TRIM_SUFFIX.length()));
+            try {
+                if (!region.isFile() || region.lastModified() != trim.lastModified()) {
+                    stale++;
+                    Files.delete(trim.toPath());
+                } else if (trim.length() == 0) {
+                    Files.delete(region.toPath());
+                    Files.delete(trim.toPath());
+                    applied++;
+                } else {
+                    Files.move(trim.toPath(), region.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    applied++;
+                }
+            } catch (IOException e) {
+                LOG.warning("[BlockyBorder] Falha ao aplicar " + name + ": " + e.getMessage());
+            }
+        }
+        if (applied > 0 || stale > 0)
+            LOG.info("[BlockyBorder] /trim em " + regionDir.getPath() + ": " + applied + " regiões compactadas trocadas"
+                + (stale > 0 ? ", " + stale + " descartadas (a região mudou depois do /trim)" : "") + ".");
+    }
+
+    /** Coordenadas de r.X.Z.mcr, ou null se o nome não for de uma região. */
+    static int[] parseName(String name) {
+        if (!name.startsWith("r.") || !name.endsWith(".mcr")) return null;
+        String[] parts = name.substring(2, name.length() - 4).split("\\.");
+        if (parts.length != 2) return null;
+        try {
+            return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void problem(String message) {
+        if (this.problems.size() < MAX_REPORTED_PROBLEMS) this.problems.add(message);
+    }
+
+    public boolean isDryRun() { return this.dryRun; }
+
+    public int getRegionsRead() { return this.regionsRead; }
+
+    public int getRegionsTrimmed() { return this.regionsTrimmed; }
+
+    public int getRegionsSkipped() { return this.regionsSkipped; }
+
+    public int getChunksKept() { return this.chunksKept; }
+
+    public int getChunksRemoved() { return this.chunksRemoved; }
+
+    /** Tamanho, antes e depois, das regiões que seriam compactadas. */
+    public long getBytesBefore() { return this.bytesBefore; }
+
+    public long getBytesAfter() { return this.bytesAfter; }
+
+    /** Até {@value #MAX_REPORTED_PROBLEMS} descrições de problemas encontrados. */
+    public List<String> getProblems() { return this.problems; }
+}
@@ -0,0 +1,84 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Classificação pré-calculada de cada chunk do retângulo envolvente de um
+ * {@link BorderShape}: todo dentro, todo fora, ou borda (o contorno passa a
+ * menos de {@code margin} blocos do chunk). Para dentro e fora a resposta sai
+ * de um byte; só as células de borda precisam do teste exato.
+ *
+ * Construção: cada linha de células é classificada pelo centro com um único
+ * {@link BorderShape#crossings} por linha, e depois o formato marca as células
+ * de borda. Um byte por chunk: um mapa de 10752x5376 blocos ocupa ~220 KB.
+ */
+final class ShapeGrid {
+    static final byte OUTSIDE = 0, INSIDE = 1, EDGE = 2;
+
+    final int minCX, maxCX, minCZ, maxCZ;
+    private final int width;
+    private final byte[] cells;
+    private final BorderShape shape;
+
+    ShapeGrid(BorderShape shape, double margin) {
+        this.shape = shape;
+        this.minCX = cell(shape.minX - margin) - 1;
+        this.maxCX = cell(shape.maxX + margin) + 1;
+        this.minCZ = cell(shape.minZ - margin) - 1;
+        this.maxCZ = cell(shape.maxZ + margin) + 1;
+        this.width = this.maxCX - this.minCX + 1;
+        this.cells = new byte[this.width * (this.maxCZ - this.minCZ + 1)];
+        for (int cz = this.minCZ; cz <= this.maxCZ; cz++) {
+            double[] cross = shape.crossings(true, (cz << 4) + 8.0D);
+            int k = 0;
+            for (int cx = this.minCX; cx <= this.maxCX; cx++) {
+                double x = (cx << 4) + 8.0D;
+                while (k < cross.length && cross[k] <= x) k++;
+                if ((k & 1) == 1) this.cells[index(cx, cz)] = INSIDE; // ímpar de cruzamentos à esquerda
+            }
+        }
+        shape.markEdges(this, margin);
+    }
+
+    /** Grid do /fill: com {@code pad} chunks de folga em volta do formato; null sem formato. */
+    static ShapeGrid forFill(BorderShape shape, int pad) {
+        return shape != null ? new ShapeGrid(shape, pad * 16.0D) : null;
+    }
+
+    static int cell(double coord) { return (int)Math.floor(coord) >> 4; }
+
+    byte at(int cx, int cz) {
+        if (cx < this.minCX || cx > this.maxCX || cz < this.minCZ || cz > this.maxCZ) return OUTSIDE;
+        return this.cells[index(cx, cz)];
+    }
+
+    /** Longe do contorno e dentro: nenhuma outra checagem é necessária. */
+    boolean isInside(double x, double z) {
+        return at(cell(x), cell(z)) == INSIDE;
+    }
+
+    /** Teste exato, mas só nas células de borda. */
+    boolean contains(double x, double z) {
+        byte c = at(cell(x), cell(z));
+        return c == INSIDE || (c == EDGE && this.shape.contains(x, z));
+    }
+
+    /** O chunk tem alguma parte dentro do formato (ou a menos de margin dele). */
+    boolean covers(int cx, int cz) {
+        return at(cx, cz) != OUTSIDE;
+    }
+
+    int count(byte kind) {
+        int n = 0;
+        for (byte c : this.cells)
+            if (c == kind) n++;
+        return n;
+    }
+
+    void markEdge(int cx, int cz) {
+        if (cx < this.minCX || cx > this.maxCX || cz < this.minCZ || cz > this.maxCZ) return;
+        this.cells[index(cx, cz)] = EDGE;
+    }
+
+    private int index(int cx, int cz) {
+        return (cz - this.minCZ) * this.width + (cx - this.minCX);
+    }
+}
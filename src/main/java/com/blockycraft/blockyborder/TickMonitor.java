@@ -0,0 +1,30 @@
+package com.blockycraft.blockyborder;
+
+/**
+ * Roda a cada tick do servidor e mede o intervalo real entre ticks,
+ * mantendo uma média móvel do TPS.
+ */
+class TickMonitor implements Runnable {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0D;
+    private static final double MAX_TPS = 20.0D;
+    private static final double SMOOTHING = 0.05D; // peso de cada nova amostra na média
+
+    private long tick = 0;
+    private long lastTickNanos = 0;
+    private double tps = MAX_TPS;
+
+    public void run() {
+        long now = System.nanoTime();
+        if (this.lastTickNanos != 0) {
+            long interval = Math.max(1L, now - this.lastTickNanos);
+            double sample = Math.min(MAX_TPS, NANOS_PER_SECOND / interval);
+            this.tps += (sample - this.tps) * SMOOTHING;
+        }
+        this.lastTickNanos = now;
+        this.tick++;
+    }
+
+    public long getTick() { return this.tick; }
+
+    public double getTps() { return this.tps; }
+}
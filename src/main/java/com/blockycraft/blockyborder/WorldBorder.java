@@ -0,0 +1,33 @@
+package com.blockycraft.blockyborder;
+
+import java.io.File;
+
+/**
+ * Tudo o que o plugin mantém por mundo: os limites da borda, os arquivos do
+ * trabalho de /fill e as estruturas do wrap-around (pré-carregamento e índice
+ * de alturas). O mundo principal usa os nomes de arquivo antigos; os demais
+ * levam o nome do mundo no arquivo.
+ */
+final class WorldBorder {
+    final String world;
+    final BorderBounds bounds;
+    final File bitmapFile, edgeIndexFile;
+    final CheckpointWriter checkpoints;
+
+    WrapPrewarmer prewarmer;
+    EdgeHeightIndex edgeIndex;
+    EdgeIndexBuilder edgeIndexBuilder;
+    FillStepTask fillJob;
+    boolean filling = false; // inclui a varredura prévia, antes de fillJob existir
+    RegionTrimmer trimmer; // /trim em andamento
+    FillPriority priority; // null: o /fill segue só a ordem de visita
+
+    WorldBorder(String world, BorderBounds bounds, File dataFolder, boolean main) {
+        this.world = world;
+        this.bounds = bounds;
+        String suffix = main ? "" : "-" + world;
+        this.bitmapFile = new File(dataFolder, "fill_job" + suffix + ".bitmap");
+        this.edgeIndexFile = new File(dataFolder, "edge_heights" + suffix + ".bin");
+        this.checkpoints = new CheckpointWriter(new File(dataFolder, "fill_job" + suffix + ".ckpt"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.blockycraft.blockyborder;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Carrega com antecedência os chunks do outro lado da borda para onde um
+ * jogador vai ser levado pelo wrap-around.
+ *
+ * O listener de movimento chama {@link #observe} para quem está na faixa
+ * perto da borda; pela velocidade do último movimento estimamos em quantos
+ * ticks o jogador cruza e, se for dentro do horizonte, pedimos os chunks em
+ * volta do destino espelhado. Os pedidos entram numa fila limitada e são
+ * carregados aos poucos por {@link #tick}. Um chunk que deixa de ser pedido é
+ * liberado depois de {@code releaseTicks}, e só se fomos nós que o carregamos.
+ */
+class WrapPrewarmer {
+    private static final int RELEASE_SWEEP_TICKS = 20;
+
+    private static final class Warm {
+        final int x, z;
+        long wantedUntil;
+        boolean loaded, owned, cancelled;
+
+        Warm(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    private final World world;
+    private final int lookaheadTicks, radius, perTick, maxQueue, releaseTicks;
+    private final Map<Long, Warm> warm = new HashMap<>();
+    private final ArrayDeque<Warm> queue = new ArrayDeque<>();
+    private long loadedCount = 0, droppedCount = 0;
+
+    WrapPrewarmer(World world, int lookaheadTicks, int radius, int perTick, int maxQueue, int releaseTicks) {
+        this.world = world;
+        this.lookaheadTicks = lookaheadTicks;
+        this.radius = radius;
+        this.perTick = perTick;
+        this.maxQueue = maxQueue;
+        this.releaseTicks = releaseTicks;
+    }
+
+    public World getWorld() { return this.world; }
+
+    /**
+     * Avalia um movimento dentro da borda mas fora do retângulo interno. O
+     * deslocamento from→to de um evento corresponde a mais ou menos um tick.
+     */
+    public void observe(BorderBounds b, Location from, Location to, long tick) {
+        if (to.getWorld() != this.world) return;
+        double x = to.getX(), z = to.getZ();
+        double dx = x - from.getX(), dz = z - from.getZ();
+        double tx = Double.MAX_VALUE, tz = Double.MAX_VALUE;
+        if (dx < 0) tx = (x - b.minX) / -dx;
+        else if (dx > 0) tx = (b.maxX - x) / dx;
+        if (dz < 0) tz = (z - b.minZ) / -dz;
+        else if (dz > 0) tz = (b.maxZ - z) / dz;
+        double t = b.shape != null ? b.shape.exitTicks(x, z, dx, dz) : Math.min(tx, tz);
+        if (t > this.lookaheadTicks) return;
+
+        // Ponto previsto logo depois de cruzar, espelhado como em BorderBounds.wrap.
+        double px = x + dx * (t + 1), pz = z + dz * (t + 1);
+        double destX, destZ;
+        if (b.shape != null) {
+            Location dest = b.wrap(new Location(this.world, px, to.getY(), pz));
+            if (dest == null) return;
+            destX = dest.getX();
+            destZ = dest.getZ();
+        } else {
+            destX = px < b.minX ? b.maxX - b.buffer : px > b.maxX ? b.minX + b.buffer : px;
+            destZ = pz < b.minZ ? b.maxZ - b.buffer : pz > b.maxZ ? b.minZ + b.buffer : pz;
+        }
+        int cx = (int)Math.floor(destX) >> 4, cz = (int)Math.floor(destZ) >> 4;
+        for (int ox = -this.radius; ox <= this.radius; ox++)
+            for (int oz = -this.radius; oz <= this.radius; oz++)
+                request(cx + ox, cz + oz, tick);
+    }
+
+    private void request(int chunkX, int chunkZ, long tick) {
+        Long key = ChunkUnloader.key(chunkX, chunkZ);
+        Warm w = this.warm.get(key);
+        if (w == null) {
+            if (this.queue.size() >= this.maxQueue) {
+                this.droppedCount++;
+                return;
+            }
+            w = new Warm(chunkX, chunkZ);
+            this.warm.put(key, w);
+            this.queue.add(w);
+        }
+        w.wantedUntil = tick + this.releaseTicks;
+    }
+
+    /** Carrega alguns chunks da fila e, periodicamente, libera os que expiraram. */
+    public void tick(long tick) {
+        int count = 0;
+        while (count < this.perTick && !this.queue.isEmpty()) {
+            Warm w = this.queue.poll();
+            if (w.cancelled) continue;
+            w.owned = !this.world.isChunkLoaded(w.x, w.z);
+            if (w.owned) {
+                this.world.loadChunk(w.x, w.z); // gera se ainda não existir
+                this.loadedCount++;
+                count++;
+            }
+            w.loaded = true;
+        }
+        if (tick % RELEASE_SWEEP_TICKS == 0) release(tick);
+    }
+
+    private void release(long tick) {
+        Iterator<Warm> it = this.warm.values().iterator();
+        while (it.hasNext()) {
+            Warm w = it.next();
+            if (w.wantedUntil >= tick) continue;
+            it.remove();
+            w.cancelled = true;
+            // unloadChunkRequest respeita jogadores por perto, inclusive quem acabou de chegar.
+            if (w.loaded && w.owned) this.world.unloadChunkRequest(w.x, w.z);
+        }
+    }
+
+    /** O chunk de destino já foi carregado por nós (ou já estava carregado)? */
+    public boolean isWarm(World world, int chunkX, int chunkZ) {
+        if (world != this.world) return false;
+        Warm w = this.warm.get(ChunkUnloader.key(chunkX, chunkZ));
+        return w != null && w.loaded;
+    }
+
+    public int getTracked() { return this.warm.size(); }
+
+    public int getQueued() { return this.queue.size(); }
+
+    public long getLoadedCount() { return this.loadedCount; }
+
+    public long getDroppedCount() { return this.droppedCount; }
+}
@@ -0,0 +1,83 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BorderPlayerListenerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final TickMonitor ticks = new TickMonitor();
+    private World world;
+    private BorderPlayerListener listener;
+    private int teleports = 0;
+
+    /** Id de entidade atual do jogador; o Minecraft troca ao renascer ou mudar de mundo. */
+    private int entityId = 100;
+    private final UUID uuid = new UUID(0x1234L, 0x5678L);
+    private Player player;
+
+    @Before
+    public void setUp() throws IOException {
+        this.world = (World)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getName")) return "world";
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        this.player = (Player)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Player.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getEntityId")) return BorderPlayerListenerTest.this.entityId;
+                if (name.equals("getUniqueId")) return BorderPlayerListenerTest.this.uuid;
+                if (name.equals("getWorld")) return BorderPlayerListenerTest.this.world;
+                throw new UnsupportedOperationException(name);
+            }
+        });
+        BorderBounds bounds = new BorderBounds(true, true, -100.0D, 100.0D, -100.0D, 100.0D, 2.0D);
+        WorldBorder border = new WorldBorder("world", bounds, this.tmp.getRoot(), true);
+        this.listener = new BorderPlayerListener(new WorldBorder[] { border }, this.ticks, new BorderPlayerListener.Teleporter() {
+            public void teleport(WorldBorder border, Player player, Location destination) {
+                BorderPlayerListenerTest.this.teleports++;
+            }
+        });
+    }
+
+    private void crossEastEdge() {
+        this.listener.onPlayerMove(new PlayerMoveEvent(this.player,
+            new Location(this.world, 99.5D, 64.0D, 0.0D), new Location(this.world, 100.5D, 64.0D, 0.0D)));
+    }
+
+    @Test
+    public void graceSkipsRepeatedCrossingsUntilItExpires() {
+        this.ticks.run();
+        crossEastEdge();
+        crossEastEdge(); // movimentos atrasados, ainda do lado de fora
+        assertEquals(1, this.teleports);
+        for (int i = 0; i < BorderPlayerListener.IGNORE_TICKS; i++) this.ticks.run();
+        crossEastEdge();
+        assertEquals(2, this.teleports);
+    }
+
+    @Test
+    public void graceSurvivesANewEntityId() {
+        this.ticks.run();
+        crossEastEdge();
+        this.entityId = 257; // renasceu ou trocou de mundo no meio da carência
+        crossEastEdge();
+        assertEquals(1, this.teleports);
+    }
+}
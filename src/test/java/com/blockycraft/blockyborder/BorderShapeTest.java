@@ -0,0 +1,83 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class BorderShapeTest {
+    /** Um U: o entalhe de x 100..200 vai de z = 100 até a borda de cima (z = 300). */
+    static final String U = "0,0; 300,0; 300,300; 200,300; 200,100; 100,100; 100,300; 0,300";
+
+    @Test
+    public void concavePolygon() {
+        BorderShape u = BorderShape.parsePolygon(U);
+        assertEquals(0.0D, u.minX, 0.0D);
+        assertEquals(300.0D, u.maxZ, 0.0D);
+        assertTrue(u.contains(50, 50));
+        assertTrue(u.contains(150, 50));
+        assertTrue(u.contains(250, 250));
+        assertFalse("dentro do entalhe", u.contains(150, 200));
+        assertFalse(u.contains(-1, 50));
+        assertFalse(u.contains(150, 301));
+
+        assertArrayEquals(new double[] { 0, 100, 200, 300 }, u.crossings(true, 200), 1e-9);
+        assertArrayEquals(new double[] { 0, 300 }, u.crossings(true, 50), 1e-9);
+        assertArrayEquals(new double[] { 0, 100 }, u.crossings(false, 150), 1e-9);
+        assertEquals(0, u.crossings(true, 400).length);
+        // Reta que passa por um vértice: conta uma vez só.
+        assertEquals(0, u.crossings(true, 100).length % 2);
+    }
+
+    @Test
+    public void polygonExitTicks() {
+        BorderShape u = BorderShape.parsePolygon(U);
+        assertEquals(50.0D, u.exitTicks(50, 200, 1, 0), 1e-9); // bate no lado do entalhe em x = 100
+        assertEquals(25.0D, u.exitTicks(250, 250, 0, 2), 1e-9);
+        assertEquals(Double.MAX_VALUE, u.exitTicks(50, 50, 0, 0), 0.0D);
+    }
+
+    @Test
+    public void ellipse() {
+        BorderShape e = BorderShape.parseEllipse("10, -20, 100, 50");
+        assertTrue(e.contains(10, -20));
+        assertTrue(e.contains(109, -20));
+        assertFalse(e.contains(111, -20));
+        assertTrue(e.contains(10, 29));
+        assertFalse(e.contains(10, 31));
+        assertFalse("canto do retângulo envolvente", e.contains(100, 20));
+        assertArrayEquals(new double[] { -90, 110 }, e.crossings(true, -20), 1e-9);
+        assertArrayEquals(new double[] { -70, 30 }, e.crossings(false, 10), 1e-9);
+        assertEquals(0, e.crossings(true, 30).length);
+        assertEquals(100.0D, e.exitTicks(10, -20, 1, 0), 1e-9);
+        assertEquals(Double.MAX_VALUE, e.exitTicks(500, 0, 1, 0), 0.0D);
+
+        BorderShape circle = BorderShape.parseEllipse("0,0,64");
+        assertEquals(-64.0D, circle.minZ, 0.0D);
+        assertTrue(circle.toString().startsWith("círculo"));
+    }
+
+    @Test
+    public void parseErrors() {
+        expectInvalid(true, "0,0;10,0");
+        expectInvalid(true, "0,0;10;10,10");
+        expectInvalid(true, "0,0;10,x;10,10");
+        expectInvalid(false, "0,0");
+        expectInvalid(false, "0,0,10,10,10");
+        expectInvalid(false, "0,0,0");
+        expectInvalid(false, "0,0,10,-5");
+        assertEquals("polígono de 3 vértices", BorderShape.parsePolygon(" 0,0 ; 10,0 ; 10,10 ; ").toString());
+    }
+
+    private static void expectInvalid(boolean polygon, String spec) {
+        try {
+            if (polygon) BorderShape.parsePolygon(spec);
+            else BorderShape.parseEllipse(spec);
+            fail("deveria recusar '" + spec + "'");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
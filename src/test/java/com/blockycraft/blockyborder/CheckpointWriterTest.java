@@ -0,0 +1,81 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckpointWriterTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void loadsTheNewestCheckpoint() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.dat");
+        CheckpointWriter writer = new CheckpointWriter(file);
+        assertFalse(writer.exists());
+        assertNull(writer.load());
+
+        FillJobState state = FillJobStateTest.sample();
+        writer.offer(state);
+        writer.writePending();
+        writer.offer(state.withProgress(1300, 1000));
+        writer.writePending();
+        assertTrue(writer.exists());
+        assertTrue(new File(file.getPath() + ".prev").exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        FillJobState loaded = new CheckpointWriter(file).load();
+        assertEquals(1300, loaded.position);
+        assertEquals(1000, loaded.generated);
+    }
+
+    @Test
+    public void fallsBackToPrevWhenTheNewestIsCorrupt() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.dat");
+        CheckpointWriter writer = new CheckpointWriter(file);
+        FillJobState state = FillJobStateTest.sample();
+        writer.offer(state);
+        writer.writePending();
+        writer.offer(state.withProgress(1300, 1000));
+        writer.writePending();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0x40);
+        }
+        FillJobStateTest.assertSameState(state, writer.load());
+
+        // Cortado no meio da gravação também vale.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(5);
+        }
+        FillJobStateTest.assertSameState(state, writer.load());
+
+        new File(file.getPath() + ".prev").delete();
+        assertNull(writer.load());
+    }
+
+    @Test
+    public void clearRemovesEverythingAndStopsWriting() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.dat");
+        CheckpointWriter writer = new CheckpointWriter(file);
+        writer.offer(FillJobStateTest.sample());
+        writer.writePending();
+        writer.offer(FillJobStateTest.sample().withProgress(5, 5));
+        writer.writePending();
+        writer.clear();
+        assertFalse(writer.exists());
+        writer.writePending(); // nada pendente
+        assertFalse(file.exists());
+    }
+}
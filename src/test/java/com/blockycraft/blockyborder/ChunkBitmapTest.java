@@ -0,0 +1,70 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkBitmapTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void bitsSurviveReopeningTheSameArea() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.bitmap");
+        ChunkBitmap bitmap = ChunkBitmap.open(file, -10, 9, -5, 4);
+        assertEquals(200, bitmap.size());
+        assertTrue(bitmap.set(-10, -5));
+        assertTrue(bitmap.set(9, 4));
+        assertTrue(bitmap.set(0, 0));
+        assertFalse("já estava marcado", bitmap.set(0, 0));
+        bitmap.flush();
+
+        ChunkBitmap reopened = ChunkBitmap.open(file, -10, 9, -5, 4);
+        assertEquals(3, reopened.count());
+        assertTrue(reopened.get(-10, -5));
+        assertTrue(reopened.get(9, 4));
+        assertTrue(reopened.get(0, 0));
+        assertFalse(reopened.get(1, 0));
+    }
+
+    @Test
+    public void reopeningWithAnotherAreaKeepsTheBitsOfTheIntersection() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.bitmap");
+        ChunkBitmap bitmap = ChunkBitmap.open(file, 0, 9, 0, 9);
+        for (int x = 0; x <= 9; x++) bitmap.set(x, x);
+        bitmap.flush();
+
+        // Área maior para um lado e menor para o outro, como um /fill com outro pad.
+        ChunkBitmap moved = ChunkBitmap.open(file, 3, 14, -2, 6);
+        for (int x = 3; x <= 14; x++)
+            for (int z = -2; z <= 6; z++)
+                assertEquals(x + "," + z, x == z && x <= 6, moved.get(x, z));
+        assertEquals(4, moved.count()); // 3,3 a 6,6
+        assertFalse(moved.contains(2, 2));
+        assertTrue(moved.contains(14, -2));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        ChunkBitmap again = ChunkBitmap.open(file, 3, 14, -2, 6);
+        assertEquals(4, again.count());
+    }
+
+    @Test
+    public void anInvalidFileIsReplacedByAnEmptyMap() throws IOException {
+        File file = new File(this.tmp.getRoot(), "fill_job.bitmap");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        }
+        ChunkBitmap bitmap = ChunkBitmap.open(file, 0, 3, 0, 3);
+        assertEquals(0, bitmap.count());
+        assertEquals(16, bitmap.size());
+        bitmap.set(3, 3);
+        assertEquals(1, ChunkBitmap.open(file, 0, 3, 0, 3).count());
+    }
+}
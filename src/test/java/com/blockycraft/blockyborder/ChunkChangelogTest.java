@@ -0,0 +1,112 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkChangelogTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Entradas lidas, como "offset:mundo:x,z:origem". */
+    private static List<String> read(File dir, long from, long[] next) throws IOException {
+        final List<String> seen = new ArrayList<>();
+        next[0] = ChunkChangelog.read(dir, from, new ChunkChangelog.Visitor() {
+            public void change(long offset, long timeMillis, String world, int chunkX, int chunkZ, byte source) {
+                seen.add(offset + ":" + world + ":" + chunkX + "," + chunkZ + ":" + source);
+            }
+        });
+        return seen;
+    }
+
+    private static List<File> segments(File dir) {
+        List<File> segments = new ArrayList<>();
+        for (File f : dir.listFiles())
+            if (f.getName().endsWith(".log")) segments.add(f);
+        return segments;
+    }
+
+    @Test
+    public void readsFromAnOffsetAcrossSegments() throws IOException {
+        File dir = this.tmp.newFolder("changes");
+        ChunkChangelog log = new ChunkChangelog(dir, 4, 10);
+        for (int i = 0; i < 10; i++) log.record(i % 2 == 0 ? "world" : "nether", i, -i, i < 8 ? ChunkChangelog.FILL : ChunkChangelog.WRAP);
+        log.flush();
+        assertEquals(10, log.getNextOffset());
+        assertEquals(3, segments(dir).size()); // 0, 4 e 8
+
+        long[] next = new long[1];
+        List<String> all = read(dir, 0, next);
+        assertEquals(10, all.size());
+        assertEquals("0:world:0,0:1", all.get(0));
+        assertEquals("9:nether:9,-9:2", all.get(9));
+        assertEquals(10, next[0]);
+
+        List<String> tail = read(dir, 6, next);
+        assertEquals(4, tail.size());
+        assertEquals("6:world:6,-6:1", tail.get(0));
+        assertEquals(0, read(dir, next[0], next).size());
+        assertEquals(10, next[0]);
+    }
+
+    @Test
+    public void prunesTheOldestSegments() throws IOException {
+        File dir = this.tmp.newFolder("changes");
+        ChunkChangelog log = new ChunkChangelog(dir, 4, 2);
+        for (int i = 0; i < 14; i++) {
+            log.record("world", i, 0, ChunkChangelog.FILL);
+            log.flush(); // uma gravação por entrada, como o servidor faria ao longo do tempo
+        }
+        assertEquals(2, segments(dir).size()); // 8 e 12
+        assertEquals(8, log.getFirstOffset());
+
+        long[] next = new long[1];
+        List<String> seen = read(dir, 0, next); // pedido antigo começa no mais antigo guardado
+        assertEquals(6, seen.size());
+        assertEquals("8:world:8,0:1", seen.get(0));
+        assertEquals(14, next[0]);
+    }
+
+    @Test
+    public void reopeningDropsATruncatedRecordAndContinues() throws IOException {
+        File dir = this.tmp.newFolder("changes");
+        ChunkChangelog log = new ChunkChangelog(dir, 100, 4);
+        for (int i = 0; i < 5; i++) log.record("world", i, i, ChunkChangelog.FILL);
+        log.flush();
+        File segment = segments(dir).get(0);
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[ChunkChangelog.RECORD / 2]); // queda no meio de uma gravação
+        }
+
+        ChunkChangelog reopened = new ChunkChangelog(dir, 100, 4);
+        assertEquals(5, reopened.getNextOffset());
+        assertEquals(5L * ChunkChangelog.RECORD, segment.length());
+        reopened.record("skylands", 7, 7, ChunkChangelog.WRAP);
+        reopened.flush();
+
+        long[] next = new long[1];
+        List<String> seen = read(dir, 4, next);
+        assertEquals(2, seen.size());
+        assertEquals("4:world:4,4:1", seen.get(0));
+        assertEquals("5:skylands:7,7:2", seen.get(1));
+        assertEquals(6, next[0]);
+    }
+
+    @Test
+    public void nothingRecordedReadsNothing() throws IOException {
+        File dir = this.tmp.newFolder("changes");
+        ChunkChangelog log = new ChunkChangelog(dir, 4, 2);
+        log.flush();
+        long[] next = new long[1];
+        assertEquals(0, read(dir, 3, next).size());
+        assertEquals(3, next[0]);
+        assertEquals(0, log.getNextOffset());
+    }
+}
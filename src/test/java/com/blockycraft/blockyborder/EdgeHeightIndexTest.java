@@ -0,0 +1,76 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.Test;
+
+public class EdgeHeightIndexTest {
+    /** Chão de pedra até y = 63, com água no lugar da pedra do topo nas colunas de {@code water}. */
+    private final Map<Long, Integer> top = new HashMap<>();
+    private final Map<Long, Integer> surface = new HashMap<>();
+
+    private final World world = (World)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!method.getName().equals("getBlockTypeIdAt")) throw new UnsupportedOperationException(method.getName());
+            int x = (Integer)args[0], y = (Integer)args[1], z = (Integer)args[2];
+            long column = ChunkUnloader.key(x, z);
+            Integer columnTop = EdgeHeightIndexTest.this.top.get(column);
+            int h = columnTop != null ? columnTop : 63;
+            if (y > h) return Material.AIR.getId();
+            if (y == h && EdgeHeightIndexTest.this.surface.containsKey(column)) return EdgeHeightIndexTest.this.surface.get(column);
+            return Material.STONE.getId();
+        }
+    });
+
+    // Linhas de destino em x = -98 e x = 98, z = -98 e z = 98.
+    private final EdgeHeightIndex index = new EdgeHeightIndex("world", new BorderBounds(true, true, -100.0D, 100.0D, -100.0D, 100.0D, 2.0D));
+
+    @Test
+    public void distinguishesUnknownFromUnsafe() {
+        this.surface.put(ChunkUnloader.key(-98, 10), Material.STATIONARY_WATER.getId());
+        assertEquals(EdgeHeightIndex.UNKNOWN, this.index.landingY(-98, 10));
+        this.index.updateColumn(this.world, -98, 10);
+        this.index.updateColumn(this.world, -98, 11);
+        assertEquals(EdgeHeightIndex.UNSAFE, this.index.landingY(-98, 10));
+        assertEquals(64, this.index.landingY(-98, 11));
+        assertEquals(2, this.index.getKnown());
+        assertEquals(EdgeHeightIndex.UNKNOWN, this.index.landingY(0, 0)); // não é destino de wrap
+    }
+
+    @Test
+    public void findsTheNearestSafeColumnAlongTheSameLine() {
+        for (int z = 0; z <= 6; z++) {
+            if (z != 5) this.surface.put(ChunkUnloader.key(98, z), Material.STATIONARY_WATER.getId());
+            this.index.updateColumn(this.world, 98, z);
+        }
+        this.top.put(ChunkUnloader.key(98, 5), 70);
+        this.index.updateColumn(this.world, 98, 5);
+        assertEquals(ChunkUnloader.key(98, 5), this.index.nearestSafeColumn(98, 2, 8));
+        assertEquals(EdgeHeightIndex.NO_COLUMN, this.index.nearestSafeColumn(98, 2, 2));
+        // Colunas ainda desconhecidas não contam.
+        assertEquals(EdgeHeightIndex.NO_COLUMN, this.index.nearestSafeColumn(-98, 2, 8));
+
+        // Na linha norte o vizinho anda em x.
+        this.index.updateColumn(this.world, 40, -98);
+        assertEquals(ChunkUnloader.key(40, -98), this.index.nearestSafeColumn(37, -98, 3));
+    }
+
+    @Test
+    public void isClearChecksBothBlocksOfThePlayer() {
+        this.index.updateColumn(this.world, -98, 0);
+        int y = this.index.landingY(-98, 0);
+        assertEquals(64, y);
+        assertTrue(EdgeHeightIndex.isClear(this.world, -98, y, 0));
+        this.top.put(ChunkUnloader.key(-98, 0), 65); // cresceu terra sem evento de bloco
+        assertFalse(EdgeHeightIndex.isClear(this.world, -98, y, 0));
+    }
+}
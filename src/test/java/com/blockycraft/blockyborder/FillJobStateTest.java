@@ -0,0 +1,128 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import org.junit.Test;
+
+public class FillJobStateTest {
+    static FillJobState sample() {
+        return new FillJobState("mundo_á", 250, 3, -40, 39, -20, 19, 3200, 12.5D, 18.0D,
+            FillTraversal.Order.SPIRAL, true, false, 1234, 987);
+    }
+
+    static void assertSameState(FillJobState a, FillJobState b) {
+        assertEquals(a.world, b.world);
+        assertEquals(a.freq, b.freq);
+        assertEquals(a.pad, b.pad);
+        assertEquals(a.minX, b.minX);
+        assertEquals(a.maxX, b.maxX);
+        assertEquals(a.minZ, b.minZ);
+        assertEquals(a.maxZ, b.maxZ);
+        assertEquals(a.total, b.total);
+        assertEquals(a.budgetMs, b.budgetMs, 0.0D);
+        assertEquals(a.minTps, b.minTps, 0.0D);
+        assertEquals(a.order, b.order);
+        assertEquals(a.prescan, b.prescan);
+        assertEquals(a.scanned, b.scanned);
+        assertEquals(a.position, b.position);
+        assertEquals(a.generated, b.generated);
+    }
+
+    private static byte[] bytes(FillJobState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static FillJobState read(byte[] data) throws IOException {
+        return FillJobState.readFrom(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        FillJobState state = sample();
+        assertSameState(state, read(bytes(state)));
+        FillJobState moved = state.withScanned().withProgress(2000, 1500);
+        FillJobState back = read(bytes(moved));
+        assertTrue(back.scanned);
+        assertEquals(2000, back.position);
+        assertEquals(1500, back.generated);
+        assertTrue("sem mudança, o mesmo retrato", moved.withProgress(2000, 1500) == moved);
+    }
+
+    @Test
+    public void rejectsBadMagicVersionAndOrder() throws IOException {
+        byte[] data = bytes(sample());
+        byte[] magic = data.clone();
+        magic[0] ^= 1;
+        expectFailure(magic);
+
+        byte[] version = data.clone();
+        version[7] = 9;
+        expectFailure(version);
+
+        // a ordem é o byte depois de world (2 + len), 8 ints e 2 doubles
+        int orderAt = 8 + 2 + "mundo_á".getBytes("UTF-8").length + 7 * 4 + 2 * 8;
+        assertEquals(FillTraversal.Order.SPIRAL.ordinal(), data[orderAt]);
+        byte[] order = data.clone();
+        order[orderAt] = (byte)FillTraversal.Order.values().length;
+        expectFailure(order);
+
+        byte[] truncated = new byte[data.length - 3];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        expectFailure(truncated);
+    }
+
+    private static void expectFailure(byte[] data) {
+        try {
+            read(data);
+            fail("deveria recusar");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void readsTheLegacyPropertiesFile() {
+        Properties p = new Properties();
+        p.setProperty("freq", "100");
+        p.setProperty("cminX", "-5");
+        p.setProperty("cmaxX", "5");
+        p.setProperty("cminZ", "-6");
+        p.setProperty("cmaxZ", "6");
+        p.setProperty("total", "143");
+        FillJobState old = FillJobState.fromProperties(p, "world");
+        assertEquals("world", old.world);
+        assertEquals(100, old.freq);
+        assertEquals(0, old.pad);
+        assertEquals(-5, old.minX);
+        assertEquals(6, old.maxZ);
+        assertEquals(143, old.total);
+        assertEquals(0.0D, old.budgetMs, 0.0D);
+        assertEquals(FillTraversal.Order.COLUMN, old.order);
+        assertFalse(old.prescan);
+        assertEquals(0, old.position);
+
+        p.setProperty("pad", "2");
+        p.setProperty("budgetMs", "7.5");
+        p.setProperty("minTps", "17");
+        p.setProperty("order", "region");
+        p.setProperty("prescan", "true");
+        p.setProperty("scanned", "true");
+        FillJobState newer = FillJobState.fromProperties(p, "world");
+        assertEquals(2, newer.pad);
+        assertEquals(7.5D, newer.budgetMs, 0.0D);
+        assertEquals(17.0D, newer.minTps, 0.0D);
+        assertEquals(FillTraversal.Order.REGION, newer.order);
+        assertTrue(newer.prescan);
+        assertTrue(newer.scanned);
+    }
+}
@@ -0,0 +1,115 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FillPriorityTest {
+    /** Mundo falso: jogadores fixos e chunks carregados num conjunto; conta as perguntas. */
+    private final List<Player> players = new ArrayList<>();
+    private final Set<Long> loaded = new HashSet<>(), done = new HashSet<>();
+    private int loadedQueries = 0, locations = 0;
+    private World world;
+
+    private final FillPriority.Pending pending = new FillPriority.Pending() {
+        public boolean isPending(int chunkX, int chunkZ) {
+            return Math.abs(chunkX) <= 50 && Math.abs(chunkZ) <= 50 && !FillPriorityTest.this.done.contains(ChunkUnloader.key(chunkX, chunkZ));
+        }
+    };
+
+    @Before
+    public void setUp() {
+        this.world = (World)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getPlayers")) return new ArrayList<>(FillPriorityTest.this.players);
+                if (name.equals("isChunkLoaded")) {
+                    FillPriorityTest.this.loadedQueries++;
+                    return FillPriorityTest.this.loaded.contains(ChunkUnloader.key((Integer)args[0], (Integer)args[1]));
+                }
+                if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                if (name.equals("equals")) return proxy == args[0];
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private void addPlayer(int chunkX, int chunkZ) {
+        final Location location = new Location(this.world, chunkX * 16 + 8, 64, chunkZ * 16 + 8);
+        this.players.add((Player)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Player.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getLocation")) {
+                    FillPriorityTest.this.locations++;
+                    return location;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+    }
+
+    @Test
+    public void servesPendingChunksClosestFirst() {
+        FillPriority priority = new FillPriority(2, 100L);
+        addPlayer(0, 0);
+        this.loaded.add(ChunkUnloader.key(1, 0));
+        this.done.add(ChunkUnloader.key(0, 1));
+        priority.tick(this.world, this.pending, 1L); // monta o ciclo com o jogador
+        assertEquals(FillPriority.NONE, priority.poll(this.pending));
+        priority.tick(this.world, this.pending, 2L); // o ciclo acabou e passa a ser servido
+        assertEquals(11, priority.getQueued()); // 13 chunks no raio 2, menos um carregado e um pronto
+
+        int last = 0, n = 0;
+        long key;
+        while ((key = priority.poll(this.pending)) != FillPriority.NONE) {
+            int x = (int)(key >> 32), z = (int)key, d = x * x + z * z;
+            assertTrue(d >= last && d <= 4);
+            assertFalse(this.loaded.contains(key) || this.done.contains(key));
+            last = d;
+            n++;
+        }
+        assertEquals(11, n);
+        assertEquals(11L, priority.getPromoted());
+        assertEquals(0, priority.getQueued());
+    }
+
+    @Test
+    public void refreshIsSpreadOverTheCycle() {
+        FillPriority priority = new FillPriority(3, 100L);
+        for (int i = 0; i < 4 * FillPriority.CYCLE_TICKS; i++) addPlayer(i % 10, i / 10);
+        for (int t = 0; t < FillPriority.CYCLE_TICKS; t++) {
+            this.locations = 0;
+            priority.tick(this.world, this.pending, t);
+            assertEquals(4, this.locations);
+        }
+    }
+
+    @Test
+    public void doneChunksAreNotAskedAboutNorPromoted() {
+        FillPriority priority = new FillPriority(3, 100L);
+        addPlayer(0, 0);
+        for (int x = -3; x <= 3; x++)
+            for (int z = -3; z <= 3; z++)
+                if (x != 0 || z != 0) this.done.add(ChunkUnloader.key(x, z));
+        priority.tick(this.world, this.pending, 1L);
+        assertEquals(1, this.loadedQueries); // só o chunk (0, 0) chegou ao servidor
+        priority.tick(this.world, this.pending, 2L);
+        assertEquals(1, priority.getQueued());
+
+        this.done.add(ChunkUnloader.key(0, 0)); // a ordem normal gerou antes
+        assertEquals(FillPriority.NONE, priority.poll(this.pending));
+        assertEquals(0L, priority.getPromoted());
+    }
+}
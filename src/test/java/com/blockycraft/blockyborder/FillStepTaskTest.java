@@ -0,0 +1,208 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** O mapa de bits só recebe chunks que já foram salvos (descarregados) ou gravados por World.save(). */
+public class FillStepTaskTest {
+    private static final int MAX = 7; // área de 8x8 chunks
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Mundo falso: guarda os chunks carregados; descarregar um chunk "salva" ele. */
+    private final Set<Long> loaded = new HashSet<>(), refuse = new HashSet<>(), requested = new HashSet<>();
+    private int saves = 0;
+    private World world;
+    private WorldBorder border;
+    private ChunkBitmap bitmap;
+    private FillStepTask job;
+
+    @Before
+    public void setUp() throws IOException {
+        this.world = (World)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getName")) return "world";
+                if (name.equals("getSeed")) return 0L;
+                if (name.equals("getPopulators")) return Collections.emptyList();
+                if (name.equals("getChunkAt")) {
+                    FillStepTaskTest.this.requested.add(ChunkUnloader.key((Integer)args[0], (Integer)args[1]));
+                    FillStepTaskTest.this.loaded.add(ChunkUnloader.key((Integer)args[0], (Integer)args[1]));
+                    return chunk((Integer)args[0], (Integer)args[1]);
+                }
+                if (name.equals("getLoadedChunks")) {
+                    List<Chunk> chunks = new ArrayList<>();
+                    for (long key : FillStepTaskTest.this.loaded) chunks.add(chunk((int)(key >> 32), (int)key));
+                    return chunks.toArray(new Chunk[0]);
+                }
+                if (name.equals("isChunkLoaded")) return FillStepTaskTest.this.loaded.contains(ChunkUnloader.key((Integer)args[0], (Integer)args[1]));
+                if (name.equals("unloadChunk")) {
+                    long key = ChunkUnloader.key((Integer)args[0], (Integer)args[1]);
+                    return !FillStepTaskTest.this.refuse.contains(key) && FillStepTaskTest.this.loaded.remove(key);
+                }
+                if (name.equals("save")) {
+                    FillStepTaskTest.this.saves++;
+                    return null;
+                }
+                if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                if (name.equals("equals")) return proxy == args[0];
+                throw new UnsupportedOperationException(name);
+            }
+        });
+        BorderBounds bounds = new BorderBounds(true, true, 0.0D, (MAX + 1) * 16.0D, 0.0D, (MAX + 1) * 16.0D, 2.0D);
+        this.border = new WorldBorder("world", bounds, this.tmp.getRoot(), true);
+        this.bitmap = ChunkBitmap.open(this.border.bitmapFile, 0, MAX, 0, MAX);
+        FillJobState state = new FillJobState("world", 100, 0, 0, MAX, 0, MAX, (MAX + 1) * (MAX + 1), 0.0D, 0.0D,
+            FillTraversal.Order.COLUMN, false, true, 0, 0);
+        this.job = new FillStepTask(new BlockyBorder(), this.border, this.world, state, this.bitmap);
+    }
+
+    private Chunk chunk(final int x, final int z) {
+        return (Chunk)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Chunk.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getX")) return x;
+                if (name.equals("getZ")) return z;
+                if (name.equals("getWorld")) return FillStepTaskTest.this.world;
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private void ticks(int n) {
+        for (int i = 0; i < n; i++) this.job.endTick(1000);
+    }
+
+    @Test
+    public void populatedChunksStayOutOfTheBitmapUntilSaved() throws IOException {
+        assertEquals(32, this.job.generate(32, 0L, false)); // colunas x = 0..3
+        assertEquals(0, this.bitmap.count());
+        assertEquals(32, this.job.getDone());
+
+        ticks(40); // uma varredura: só se descarregam chunks com os vizinhos prontos
+        for (int z = 0; z <= MAX; z++) {
+            assertTrue(this.bitmap.get(2, z));
+            assertFalse("a coluna 3 ainda espera a vizinha 4", this.bitmap.get(3, z));
+        }
+
+        // Um crash agora: quem reabrir o mapa vai gerar a coluna 3 de novo.
+        ChunkBitmap afterCrash = ChunkBitmap.open(this.border.bitmapFile, 0, MAX, 0, MAX);
+        assertEquals(24, afterCrash.count());
+        assertFalse(afterCrash.get(3, 0));
+        assertEquals(32, this.job.getDone());
+    }
+
+    @Test
+    public void chunksUnloadedByTheServerAreMarkedAtTheNextSweep() {
+        this.job.generate(8, 0L, false); // coluna 0
+        this.loaded.remove(ChunkUnloader.key(0, 5)); // o servidor descarregou (e salvou)
+        ticks(40);
+        assertTrue(this.bitmap.get(0, 5));
+        assertFalse(this.bitmap.get(0, 4));
+    }
+
+    @Test
+    public void finishingSavesTheWorldForChunksAPlayerKeepsLoaded() {
+        this.refuse.add(ChunkUnloader.key(4, 4)); // jogador por perto
+        while (!this.job.isExhausted()) this.job.generate(100, 0L, false);
+        while (!this.job.drain(1000)) {}
+        assertEquals(1, this.saves);
+        assertEquals((MAX + 1) * (MAX + 1), this.bitmap.count());
+        assertTrue(this.loaded.contains(ChunkUnloader.key(4, 4)));
+    }
+
+    @Test
+    public void resumingSkipsOnlyWhatWasSaved() throws IOException {
+        this.job.generate(32, 0L, false);
+        ticks(40);
+        // Nova sessão com o mapa salvo: só as colunas 0..2 estão prontas.
+        FillJobState state = new FillJobState("world", 100, 0, 0, MAX, 0, MAX, (MAX + 1) * (MAX + 1), 0.0D, 0.0D,
+            FillTraversal.Order.COLUMN, false, true, 0, 0);
+        FillStepTask resumed = new FillStepTask(new BlockyBorder(), this.border, this.world, state,
+            ChunkBitmap.open(this.border.bitmapFile, 0, MAX, 0, MAX));
+        assertEquals(40, resumed.generate(100, 0L, false));
+    }
+
+    @Test
+    public void loadedChunksFoundByTheScanWaitForTheirSave() {
+        this.loaded.add(ChunkUnloader.key(5, 5)); // carregado por um jogador, ainda não salvo
+        assertTrue(this.job.adoptLoaded(5, 5));
+        assertFalse(this.job.adoptLoaded(5, 5));
+        assertFalse(this.job.adoptLoaded(MAX + 1, 0)); // fora da área
+        assertFalse(this.bitmap.get(5, 5));
+        assertEquals(1, this.job.getDone());
+
+        assertEquals((MAX + 1) * (MAX + 1) - 1, this.job.generate(1000, 0L, false));
+        assertFalse(this.requested.contains(ChunkUnloader.key(5, 5)));
+        while (!this.job.drain(1000)) {}
+        assertTrue(this.bitmap.get(5, 5));
+        assertEquals((MAX + 1) * (MAX + 1), this.bitmap.count());
+    }
+
+    @Test
+    public void checkpointStopsAtTheFirstUnsavedChunk() throws IOException {
+        this.job.generate(32, 0L, false);
+        ticks(40);
+        // A ordem já passou da coluna 3, mas ela ainda não foi salva.
+        FillJobState checkpoint = this.job.getState();
+        assertEquals(24, checkpoint.position);
+
+        // Crash: a nova sessão parte do checkpoint e gera a coluna 3 de novo.
+        ChunkBitmap reopened = ChunkBitmap.open(this.border.bitmapFile, 0, MAX, 0, MAX);
+        FillStepTask resumed = new FillStepTask(new BlockyBorder(), this.border, this.world, checkpoint, reopened);
+        assertEquals(40, resumed.generate(100, 0L, false));
+        while (!resumed.drain(1000)) {}
+        assertEquals((MAX + 1) * (MAX + 1), reopened.count());
+
+        // Tudo salvo: o checkpoint chega ao fim da ordem.
+        resumed.endTick(1000);
+        assertEquals((MAX + 1) * (MAX + 1), resumed.getState().position);
+    }
+
+    @Test
+    public void chunksOutsideTheShapeAreSkippedAndNeverMarked() throws IOException {
+        // Círculo no meio da área de 8x8 chunks; os cantos ficam de fora.
+        BorderShape circle = BorderShape.parseEllipse("64,64,40");
+        BorderBounds bounds = new BorderBounds(true, true, circle, 2.0D, 0.0D);
+        WorldBorder shaped = new WorldBorder("world", bounds, this.tmp.newFolder("shaped"), true);
+        ShapeGrid grid = ShapeGrid.forFill(circle, 0);
+        int inShape = 0;
+        for (int x = 0; x <= MAX; x++)
+            for (int z = 0; z <= MAX; z++)
+                if (grid.covers(x, z)) inShape++;
+        assertTrue(inShape > 0 && inShape < (MAX + 1) * (MAX + 1));
+
+        ChunkBitmap bits = ChunkBitmap.open(shaped.bitmapFile, 0, MAX, 0, MAX);
+        FillJobState state = new FillJobState("world", 100, 0, 0, MAX, 0, MAX, inShape, 0.0D, 0.0D,
+            FillTraversal.Order.SPIRAL, false, true, 0, 0);
+        FillStepTask job = new FillStepTask(new BlockyBorder(), shaped, this.world, state, bits);
+        assertEquals(inShape, job.generate(1000, 0L, false));
+        while (!job.drain(1000)) {}
+
+        assertEquals(inShape, job.getDone());
+        assertEquals(inShape, bits.count());
+        for (int x = 0; x <= MAX; x++)
+            for (int z = 0; z <= MAX; z++) {
+                assertEquals(x + "," + z, grid.covers(x, z), bits.get(x, z));
+                assertEquals(x + "," + z, grid.covers(x, z), this.requested.contains(ChunkUnloader.key(x, z)));
+            }
+    }
+}
@@ -0,0 +1,87 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class FillTraversalTest {
+    // Áreas com coordenadas negativas, fora do alinhamento das regiões, finas e de um chunk só.
+    private static final int[][] AREAS = {
+        { -336, 335, -168, 167 },
+        { -45, 70, 3, 100 },
+        { 5, 5, -20, 40 },
+        { -31, 33, 7, 7 },
+        { 0, 0, 0, 0 },
+    };
+
+    @Test
+    public void everyOrderVisitsEachChunkExactlyOnce() {
+        for (FillTraversal.Order order : FillTraversal.Order.values())
+            for (int[] a : AREAS) {
+                FillTraversal t = order.create(a[0], a[1], a[2], a[3]);
+                Set<Long> seen = new HashSet<>();
+                while (t.hasNext()) {
+                    long key = t.next();
+                    int x = (int)(key >> 32), z = (int)key;
+                    String where = order + " " + x + "," + z;
+                    assertTrue(where + " fora da área", x >= a[0] && x <= a[1] && z >= a[2] && z <= a[3]);
+                    assertTrue(where + " repetido", seen.add(key));
+                    assertEquals(seen.size(), t.position());
+                }
+                assertEquals(order + " não cobriu a área", (a[1] - a[0] + 1) * (a[3] - a[2] + 1), seen.size());
+            }
+    }
+
+    @Test
+    public void resumingFromAPositionContinuesTheSameSequence() {
+        for (FillTraversal.Order order : FillTraversal.Order.values()) {
+            int[] a = AREAS[1];
+            FillTraversal full = order.create(a[0], a[1], a[2], a[3]);
+            long[] expected = new long[(a[1] - a[0] + 1) * (a[3] - a[2] + 1)];
+            for (int i = 0; i < expected.length; i++) expected[i] = full.next();
+
+            for (int resume : new int[] { 0, 1, 777, expected.length - 1, expected.length }) {
+                // Como o FillStepTask retoma: avança uma ordem nova até a posição salva.
+                FillTraversal t = order.create(a[0], a[1], a[2], a[3]);
+                while (t.position() < resume && t.hasNext()) t.next();
+                for (int i = resume; i < expected.length; i++)
+                    assertEquals(order + " posição " + i, expected[i], t.next());
+                assertFalse(t.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void regionOrderFinishesEachRegionBeforeTheNext() {
+        FillTraversal t = FillTraversal.Order.REGION.create(-45, 70, 3, 100);
+        Set<Long> finished = new HashSet<>();
+        long current = Long.MIN_VALUE;
+        while (t.hasNext()) {
+            long key = t.next();
+            long region = ChunkUnloader.key((int)(key >> 32) >> 5, (int)key >> 5);
+            if (region != current) {
+                assertTrue("voltou a uma região já terminada", finished.add(region));
+                current = region;
+            }
+        }
+    }
+
+    @Test
+    public void spiralStartsAtTheCenter() {
+        FillTraversal t = FillTraversal.Order.SPIRAL.create(-10, 10, -10, 10);
+        long first = t.next();
+        assertEquals(0, (int)(first >> 32));
+        assertEquals(0, (int)first);
+    }
+
+    @Test
+    public void parseIgnoresCaseAndFallsBack() {
+        assertEquals(FillTraversal.Order.SPIRAL, FillTraversal.Order.parse(" Spiral ", FillTraversal.Order.COLUMN));
+        assertEquals(FillTraversal.Order.COLUMN, FillTraversal.Order.parse("zigzag", FillTraversal.Order.COLUMN));
+        assertEquals(FillTraversal.Order.REGION, FillTraversal.Order.parse(null, FillTraversal.Order.REGION));
+    }
+}
@@ -0,0 +1,91 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.Test;
+
+public class GraceTableTest {
+    @Test
+    public void putUpdateAndLookup() {
+        GraceTable table = new GraceTable();
+        UUID a = new UUID(1L, 2L), b = new UUID(2L, 1L), zero = new UUID(0L, 0L);
+        assertEquals(0L, table.expiresAt(a));
+        table.put(a, 10L);
+        table.put(b, 20L);
+        table.put(zero, 30L);
+        assertEquals(10L, table.expiresAt(a));
+        assertEquals(20L, table.expiresAt(b));
+        assertEquals(30L, table.expiresAt(zero));
+        table.put(a, 15L);
+        assertEquals(15L, table.expiresAt(a));
+        assertEquals(3, table.size());
+        assertEquals(0L, table.expiresAt(new UUID(1L, 3L)));
+    }
+
+    @Test
+    public void backwardShiftKeepsEveryOtherKeyReachable() {
+        Random random = new Random(7);
+        GraceTable table = new GraceTable(16);
+        Map<UUID, Long> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) ids.add(new UUID(random.nextLong(), random.nextLong()));
+
+        for (int round = 0; round < 20000; round++) {
+            UUID id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(3) == 0) {
+                table.remove(id);
+                expected.remove(id);
+            } else {
+                long tick = 1 + random.nextInt(1000);
+                table.put(id, tick);
+                expected.put(id, tick);
+            }
+            if (round % 97 == 0)
+                for (UUID each : ids) {
+                    Long want = expected.get(each);
+                    assertEquals(each.toString(), want == null ? 0L : want.longValue(), table.expiresAt(each));
+                }
+        }
+        assertEquals(expected.size(), table.size());
+        for (UUID each : ids) table.remove(each);
+        assertEquals(0, table.size());
+        table.remove(ids.get(0)); // remover o que não existe não faz nada
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void removingAnEntryInTheMiddleOfAClusterKeepsTheRest() {
+        // Numa tabela de 32 posições, procura 6 chaves com a mesma posição inicial.
+        GraceTable table = new GraceTable(16);
+        List<UUID> cluster = new ArrayList<>();
+        long home = -1;
+        for (long n = 1; cluster.size() < 6; n++) {
+            UUID id = new UUID(n, n * 31);
+            long h = homeOf(id);
+            if (home < 0) home = h;
+            if (h == home) cluster.add(id);
+        }
+        for (int i = 0; i < cluster.size(); i++) table.put(cluster.get(i), 100 + i);
+        table.remove(cluster.get(1));
+        table.remove(cluster.get(3));
+        assertEquals(0L, table.expiresAt(cluster.get(1)));
+        assertEquals(0L, table.expiresAt(cluster.get(3)));
+        assertEquals(100L, table.expiresAt(cluster.get(0)));
+        assertEquals(102L, table.expiresAt(cluster.get(2)));
+        assertEquals(104L, table.expiresAt(cluster.get(4)));
+        assertEquals(105L, table.expiresAt(cluster.get(5)));
+        assertEquals(4, table.size());
+    }
+
+    /** Posição inicial de uma chave numa tabela de 32 posições (capacidade 16). */
+    private static long homeOf(UUID id) {
+        long h = (id.getMostSignificantBits() ^ id.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & 31;
+    }
+}
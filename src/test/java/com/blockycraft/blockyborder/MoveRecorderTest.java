@@ -0,0 +1,85 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MoveRecorderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static World world(final String name) {
+        return (World)Proxy.newProxyInstance(MoveRecorderTest.class.getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getName")) return name;
+                if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+                if (method.getName().equals("equals")) return proxy == args[0];
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /** Movimentos lidos, como "jogador:tick:mundo:xOrigem>xDestino". */
+    private static List<String> read(File file) throws IOException {
+        final List<String> seen = new ArrayList<>();
+        MoveRecorder.read(file, new MoveRecorder.Visitor() {
+            public void move(long playerMost, long playerLeast, long tick, String world, double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+                seen.add(new UUID(playerMost, playerLeast) + ":" + tick + ":" + world + ":" + (int)fromX + ">" + (int)toX);
+            }
+        });
+        return seen;
+    }
+
+    @Test
+    public void playerKeepsItsUuidAcrossWorlds() throws IOException {
+        File file = new File(this.tmp.getRoot(), "traces/moves.trace");
+        MoveRecorder recorder = new MoveRecorder(file);
+        UUID player = new UUID(0x1234L, -5L);
+        World overworld = world("world"), nether = world("world_nether");
+        recorder.record(player, 10L, new Location(overworld, 1, 64, 0), new Location(overworld, 2, 64, 0));
+        recorder.record(player, 11L, new Location(nether, 3, 64, 0), new Location(nether, 4, 64, 0));
+        recorder.close();
+
+        List<String> seen = read(file);
+        assertEquals(2, seen.size());
+        assertEquals(player + ":10:world:1>2", seen.get(0));
+        assertEquals(player + ":11:world_nether:3>4", seen.get(1));
+        assertEquals(2L, recorder.getMoves());
+    }
+
+    @Test
+    public void readsVersionOneTracesByEntityId() throws IOException {
+        File file = this.tmp.newFile("old.trace");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(MoveRecorder.MAGIC);
+            out.writeShort(1);
+            out.writeByte(MoveRecorder.WORLD);
+            out.writeShort(0);
+            out.writeUTF("world");
+            out.writeByte(MoveRecorder.MOVE);
+            out.writeInt(257);
+            out.writeLong(5L);
+            out.writeShort(0);
+            for (int i = 0; i < 6; i++) out.writeDouble(i);
+            out.writeByte(MoveRecorder.MOVE); // registro cortado no fim
+            out.writeInt(257);
+        }
+        List<String> seen = read(file);
+        assertEquals(1, seen.size());
+        assertEquals(new UUID(0L, 257L) + ":5:world:0>3", seen.get(0));
+    }
+}
@@ -0,0 +1,186 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RegionTrimmerTest {
+    private static final int SECTOR = RegionScanner.SECTOR_BYTES;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Mantém só os chunks com x < 8 (coordenadas absolutas). */
+    private static final RegionTrimmer.Keep WEST = new RegionTrimmer.Keep() {
+        public boolean keep(int chunkX, int chunkZ) { return chunkX < 8; }
+    };
+
+    /**
+     * Região com um chunk em cada índice dado: {@code lengths[k]} bytes de
+     * dados (mais os 5 do cabeçalho do chunk), com um setor livre entre um
+     * chunk e outro e um setor a mais reservado, como o servidor deixa depois
+     * de regravar chunks.
+     */
+    private static byte[] region(int[] indexes, int[] lengths) {
+        int sector = 2;
+        ByteBuffer file = ByteBuffer.allocate(2 * SECTOR + indexes.length * 8 * SECTOR);
+        for (int k = 0; k < indexes.length; k++) {
+            int i = indexes[k], used = (lengths[k] + 4 + SECTOR - 1) / SECTOR;
+            file.putInt(i * 4, sector << 8 | (used + 1));
+            file.putInt(SECTOR + i * 4, 1000 + i);
+            int pos = sector * SECTOR;
+            file.putInt(pos, lengths[k]);
+            file.put(pos + 4, (byte)2);
+            for (int b = 1; b < lengths[k]; b++) file.put(pos + 4 + b, (byte)(i + b));
+            sector += used + 2;
+        }
+        return Arrays.copyOf(file.array(), sector * SECTOR);
+    }
+
+    private File write(File dir, String name, byte[] data) throws IOException {
+        File f = new File(dir, name);
+        Files.write(f.toPath(), data);
+        f.setLastModified(1_600_000_000_000L);
+        return f;
+    }
+
+    private static RegionTrimmer trim(File dir, boolean dryRun) {
+        RegionTrimmer trimmer = new RegionTrimmer(dir, WEST, Collections.<Long>emptySet(), dryRun);
+        trimmer.run();
+        return trimmer;
+    }
+
+    @Test
+    public void rewritesTheHeaderAndCompactsTheKeptChunks() throws IOException {
+        File dir = this.tmp.newFolder("region");
+        // r.0.0: índices 0..1023 = x + 32z; fica x < 8.
+        int[] indexes = { 3, 40, 100, 7 + 32 * 5, 31 }, lengths = { 100, 5000, 9000, 4092, 300 };
+        File mcr = write(dir, "r.0.0.mcr", region(indexes, lengths));
+        byte[] original = Files.readAllBytes(mcr.toPath());
+
+        RegionTrimmer trimmer = trim(dir, false);
+        assertEquals(1, trimmer.getRegionsRead());
+        assertEquals(1, trimmer.getRegionsTrimmed());
+        assertEquals(3, trimmer.getChunksKept()); // 3, 100 e 7+32*5; 40 (x = 8) e 31 saem
+        assertEquals(2, trimmer.getChunksRemoved());
+        assertTrue(trimmer.getProblems().isEmpty());
+        assertArrayEquals("o .mcr só muda no próximo início", original, Files.readAllBytes(mcr.toPath()));
+
+        File trimmed = new File(dir, "r.0.0.mcr" + RegionTrimmer.TRIM_SUFFIX);
+        assertEquals(mcr.lastModified(), trimmed.lastModified());
+        ByteBuffer out = ByteBuffer.wrap(Files.readAllBytes(trimmed.toPath()));
+        ByteBuffer in = ByteBuffer.wrap(original);
+        int next = 2;
+        for (int i = 0; i < 1024; i++) {
+            int location = out.getInt(i * 4);
+            if (in.getInt(i * 4) == 0 || (i & 31) >= 8) {
+                assertEquals("índice " + i, 0, location);
+                continue;
+            }
+            int length = in.getInt((in.getInt(i * 4) >>> 8) * SECTOR);
+            assertEquals("setores contíguos", next, location >>> 8);
+            assertEquals((length + 4 + SECTOR - 1) / SECTOR, location & 0xFF);
+            assertEquals(1000 + i, out.getInt(SECTOR + i * 4));
+            int from = (in.getInt(i * 4) >>> 8) * SECTOR, to = next * SECTOR;
+            for (int b = 0; b < length + 4; b++)
+                assertEquals(in.get(from + b), out.get(to + b));
+            next += location & 0xFF;
+        }
+        assertEquals((long)next * SECTOR, trimmed.length());
+        assertEquals(trimmed.length(), trimmer.getBytesAfter());
+        assertEquals(original.length, trimmer.getBytesBefore());
+
+        RegionTrimmer.applyPending(dir);
+        assertFalse(trimmed.exists());
+        assertArrayEquals(out.array(), Files.readAllBytes(mcr.toPath()));
+    }
+
+    @Test
+    public void dryRunOnlyCounts() throws IOException {
+        File dir = this.tmp.newFolder("region");
+        write(dir, "r.0.0.mcr", region(new int[] { 0, 20 }, new int[] { 10, 10 }));
+        RegionTrimmer trimmer = trim(dir, true);
+        assertTrue(trimmer.isDryRun());
+        assertEquals(1, trimmer.getRegionsTrimmed());
+        assertEquals(1, trimmer.getChunksRemoved());
+        assertEquals(2L * SECTOR + SECTOR, trimmer.getBytesAfter());
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    @Test
+    public void aRegionWithNothingLeftIsDeletedOnApply() throws IOException {
+        File dir = this.tmp.newFolder("region");
+        File east = write(dir, "r.1.0.mcr", region(new int[] { 0, 1 }, new int[] { 10, 10 }));
+        File untouched = write(dir, "r.0.-1.mcr", region(new int[] { 2 }, new int[] { 10 }));
+        RegionTrimmer trimmer = trim(dir, false);
+        assertEquals(2, trimmer.getRegionsRead());
+        assertEquals(1, trimmer.getRegionsTrimmed());
+        assertEquals(0L, new File(dir, "r.1.0.mcr.trim").length());
+        assertFalse(new File(dir, "r.0.-1.mcr.trim").exists());
+
+        RegionTrimmer.applyPending(dir);
+        assertFalse(east.exists());
+        assertFalse(new File(dir, "r.1.0.mcr.trim").exists());
+        assertTrue(untouched.exists());
+    }
+
+    @Test
+    public void aRegionWrittenAfterTheTrimKeepsTheServerVersion() throws IOException {
+        File dir = this.tmp.newFolder("region");
+        File mcr = write(dir, "r.0.0.mcr", region(new int[] { 0, 20 }, new int[] { 10, 10 }));
+        trim(dir, false);
+        byte[] server = Files.readAllBytes(mcr.toPath());
+        mcr.setLastModified(1_600_000_060_000L); // o servidor gravou depois do /trim
+        File leftover = new File(dir, "r.5.5.mcr.trim.tmp");
+        Files.write(leftover.toPath(), new byte[] { 1 });
+
+        RegionTrimmer.applyPending(dir);
+        assertArrayEquals(server, Files.readAllBytes(mcr.toPath()));
+        assertFalse(new File(dir, "r.0.0.mcr.trim").exists());
+        assertFalse(leftover.exists());
+    }
+
+    @Test
+    public void skipsLoadedRegionsAndKeepsRegionsWithCorruptKeptChunks() throws IOException {
+        File dir = this.tmp.newFolder("region");
+        write(dir, "r.0.0.mcr", region(new int[] { 0, 20 }, new int[] { 10, 10 }));
+        File broken = write(dir, "r.0.1.mcr", region(new int[] { 0, 20 }, new int[] { 10, 10 }));
+        try (RandomAccessFile raf = new RandomAccessFile(broken, "rw")) {
+            raf.seek(2 * SECTOR);
+            raf.writeInt(50 * SECTOR); // tamanho maior que os setores reservados
+        }
+        Set<Long> loaded = new HashSet<>();
+        loaded.add(ChunkUnloader.key(0, 0));
+        RegionTrimmer trimmer = new RegionTrimmer(dir, WEST, loaded, false);
+        trimmer.run();
+        assertEquals(1, trimmer.getRegionsSkipped());
+        assertEquals(0, trimmer.getRegionsTrimmed());
+        assertEquals(1, trimmer.getProblems().size());
+        assertTrue(trimmer.getProblems().get(0).startsWith("r.0.1.mcr: chunk 0,32"));
+        assertEquals(2, dir.listFiles().length); // nenhum .trim
+    }
+
+    @Test
+    public void parseName() {
+        assertArrayEquals(new int[] { -3, 12 }, RegionTrimmer.parseName("r.-3.12.mcr"));
+        assertNull(RegionTrimmer.parseName("r.1.2.mca"));
+        assertNull(RegionTrimmer.parseName("r.1.mcr"));
+        assertNull(RegionTrimmer.parseName("r.a.2.mcr"));
+        assertNull(RegionTrimmer.parseName("r.1.2.mcr.trim"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.blockycraft.blockyborder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ShapeGridTest {
+    /** Amostra pontos de dentro da célula (alargada {@code margin} blocos) e confere a classificação. */
+    private static void assertConsistent(BorderShape shape, ShapeGrid grid, double margin) {
+        for (int cz = grid.minCZ; cz <= grid.maxCZ; cz++)
+            for (int cx = grid.minCX; cx <= grid.maxCX; cx++) {
+                int in = 0, samples = 0;
+                for (int i = 0; i < 9; i++)
+                    for (int j = 0; j < 9; j++) {
+                        double x = (cx << 4) - margin + (i + 0.5D) * (16 + 2 * margin) / 9;
+                        double z = (cz << 4) - margin + (j + 0.5D) * (16 + 2 * margin) / 9;
+                        samples++;
+                        if (shape.contains(x, z)) in++;
+                    }
+                byte kind = grid.at(cx, cz);
+                String cell = cx + "," + cz;
+                if (in > 0 && in < samples) assertEquals("o contorno passa por " + cell, ShapeGrid.EDGE, kind);
+                else if (in == samples) assertTrue(cell, kind != ShapeGrid.OUTSIDE);
+                else assertTrue(cell, kind != ShapeGrid.INSIDE);
+            }
+    }
+
+    private static void assertContainsMatches(BorderShape shape, ShapeGrid grid) {
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            double x = shape.minX - 40 + random.nextDouble() * (shape.maxX - shape.minX + 80);
+            double z = shape.minZ - 40 + random.nextDouble() * (shape.maxZ - shape.minZ + 80);
+            assertEquals(x + "," + z, shape.contains(x, z), grid.contains(x, z));
+            if (grid.isInside(x, z)) assertTrue(shape.contains(x, z));
+        }
+    }
+
+    @Test
+    public void concavePolygon() {
+        BorderShape u = BorderShape.parsePolygon(BorderShapeTest.U);
+        ShapeGrid grid = new ShapeGrid(u, 0.0D);
+        assertConsistent(u, grid, 0.0D);
+        assertContainsMatches(u, grid);
+        assertEquals(ShapeGrid.INSIDE, grid.at(2, 2)); // blocos 32..47
+        assertEquals(ShapeGrid.OUTSIDE, grid.at(9, 14)); // fundo do entalhe: x 144..159, z 224..239
+        assertFalse(grid.covers(9, 14));
+        assertEquals(ShapeGrid.EDGE, grid.at(6, 10)); // x = 100 passa pelo meio do chunk 6
+        assertEquals(ShapeGrid.OUTSIDE, grid.at(-5, 0));
+        assertEquals(ShapeGrid.OUTSIDE, grid.at(100, 100)); // fora do grid
+    }
+
+    @Test
+    public void ellipse() {
+        BorderShape e = BorderShape.parseEllipse("0,0,200,90");
+        ShapeGrid grid = new ShapeGrid(e, 0.0D);
+        assertConsistent(e, grid, 0.0D);
+        assertContainsMatches(e, grid);
+        assertEquals(ShapeGrid.INSIDE, grid.at(0, 0));
+        assertEquals(ShapeGrid.OUTSIDE, grid.at(11, 5)); // perto do canto do retângulo envolvente
+        assertEquals(grid.count(ShapeGrid.INSIDE) + grid.count(ShapeGrid.EDGE) + grid.count(ShapeGrid.OUTSIDE),
+            (grid.maxCX - grid.minCX + 1) * (grid.maxCZ - grid.minCZ + 1));
+    }
+
+    @Test
+    public void marginWidensTheEdgeCells() {
+        BorderShape e = BorderShape.parseEllipse("0,0,100");
+        ShapeGrid tight = new ShapeGrid(e, 0.0D), padded = ShapeGrid.forFill(e, 2);
+        assertConsistent(e, padded, 32.0D);
+        // Chunk 8 (x 128..143) fica a 28 blocos do círculo: só entra com a folga.
+        assertFalse(tight.covers(8, 0));
+        assertTrue(padded.covers(8, 0));
+        assertFalse(padded.covers(9, 0)); // x >= 144: a 44 blocos
+        assertEquals(ShapeGrid.INSIDE, padded.at(0, 0));
+        assertTrue(padded.count(ShapeGrid.EDGE) > tight.count(ShapeGrid.EDGE));
+        assertEquals(null, ShapeGrid.forFill(null, 2));
+    }
+}